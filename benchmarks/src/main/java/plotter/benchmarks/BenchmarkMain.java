@@ -0,0 +1,40 @@
+package plotter.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. Accepts the usual JMH command line options, but writes
+ * the results as JSON to {@link #RESULT_FILE} unless another result format or
+ * file is given, so runs can be compared to track regressions.
+ */
+public class BenchmarkMain {
+
+	/* Default file of the results */
+	public static final String RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+
+		if (options.getIncludes().isEmpty()) {
+			builder.include("plotter\\.benchmarks\\..*");
+		}
+
+		if (!options.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+
+		if (!options.getResult().hasValue()) {
+			builder.result(RESULT_FILE);
+		}
+
+		new Runner(builder.build()).run();
+	}
+
+}
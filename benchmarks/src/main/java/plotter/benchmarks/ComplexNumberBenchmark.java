@@ -0,0 +1,139 @@
+package plotter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import plotter.expressions.ComplexNumber;
+import plotter.expressions.ComplexUtil;
+
+/**
+ * Cost of the transcendental operations of {@link ComplexNumber} and of the
+ * kernels of {@link ComplexUtil} they are built on. Each operation is applied
+ * to {@link #OPERANDS} numbers spread over the complex plane. Scores are per
+ * operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComplexNumberBenchmark {
+
+	/* Number of operands per operation */
+	public static final int OPERANDS = 64;
+
+	@Param({ "sin", "tan", "exp", "ln", "sqrt", "power", "arcsin", "arctan" })
+	public String operation;
+
+	private ComplexNumber[] operands;
+	private double[] re;
+	private double[] im;
+	private double[] outRe;
+	private double[] outIm;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		operands = new ComplexNumber[OPERANDS];
+		re = new double[OPERANDS];
+		im = new double[OPERANDS];
+		outRe = new double[OPERANDS];
+		outIm = new double[OPERANDS];
+
+		for (int i = 0; i < OPERANDS; i++) {
+			double angle = 2 * Math.PI * i / OPERANDS;
+			double modulus = 0.25 + 4.0 * i / OPERANDS;
+			re[i] = modulus * Math.cos(angle);
+			im[i] = modulus * Math.sin(angle);
+			operands[i] = new ComplexNumber(re[i], im[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERANDS)
+	public void number(Blackhole blackhole) {
+		for (ComplexNumber z : operands) {
+			blackhole.consume(apply(z));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERANDS)
+	public void kernel(Blackhole blackhole) {
+		for (int i = 0; i < OPERANDS; i++) {
+			apply(re[i], im[i], i);
+		}
+
+		blackhole.consume(outRe);
+		blackhole.consume(outIm);
+	}
+
+	private ComplexNumber apply(ComplexNumber z) {
+		switch (operation) {
+		case "sin":
+			return z.sin();
+		case "tan":
+			return z.tan();
+		case "exp":
+			return z.exp();
+		case "ln":
+			return z.ln();
+		case "sqrt":
+			return z.sqrt();
+		case "power":
+			return z.power(ComplexNumber.I);
+		case "arcsin":
+			return z.arcsin();
+		case "arctan":
+			return z.arctan();
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	private void apply(double a, double b, int i) {
+		switch (operation) {
+		case "sin":
+			ComplexUtil.sin(a, b, outRe, outIm, i);
+			break;
+		case "tan":
+			ComplexUtil.tan(a, b, outRe, outIm, i);
+			break;
+		case "exp":
+			ComplexUtil.exp(a, b, outRe, outIm, i);
+			break;
+		case "ln":
+			ComplexUtil.ln(a, b, outRe, outIm, i);
+			break;
+		case "sqrt":
+			ComplexUtil.sqrt(a, b, outRe, outIm, i);
+			break;
+		case "power":
+			ComplexUtil.power(a, b, 0, 1, outRe, outIm, i);
+			break;
+		case "arcsin":
+			ComplexUtil.arcsin(a, b, outRe, outIm, i);
+			break;
+		case "arctan":
+			ComplexUtil.arctan(a, b, outRe, outIm, i);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package plotter.benchmarks;
+
+/**
+ * Representative expressions for the benchmarks, grouped by what they stress
+ * in the evaluator.
+ */
+public enum Corpus {
+
+	/* Real arithmetic only, the fast path of the evaluator */
+	POLYNOMIAL("x^3 - 2*x^2 + x - 5", "3*x^4 + 2*x^3 - x^2 + 7*x - 1", "(x - 1)*(x + 2)*(x - 3)",
+			"0.5*x^5 - x^3/3 + x/7"),
+
+	/* Transcendental functions of real arguments */
+	TRIG("sin(x)", "sin(x)*cos(x/2)", "tan(x) + sec(x)", "sinh(x/4) - cosh(x/5) + tanh(x)"),
+
+	/* Functions that are complex for part of the range */
+	COMPLEX_BRANCH("sqrt(x)", "ln(x)", "log10(x) + sqrt(x - 2)", "x^0.5 + arcsin(x/5)"),
+
+	/* Deeply nested expressions with repeated subexpressions */
+	NESTED("sin(cos(sin(cos(sin(x)))))", "((((x + 1)*2 + 3)*4 + 5)*6 + 7)/(x^2 + 1)",
+			"abs(sin(x) - cos(x)) + abs(sin(x) + cos(x)) + max(sin(x), cos(x))",
+			"ln(abs(sqrt(x*x + 1) + sin(x)*cos(x)) + 1)");
+
+	private final String[] expressions;
+
+	private Corpus(String... expressions) {
+		this.expressions = expressions;
+	}
+
+	public String[] getExpressions() {
+		return expressions.clone();
+	}
+
+}
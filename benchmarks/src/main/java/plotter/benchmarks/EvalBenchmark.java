@@ -0,0 +1,104 @@
+package plotter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import plotter.expressions.EvalStack;
+import plotter.expressions.Expression;
+
+/**
+ * Cost of evaluating single samples, per corpus. Each operation evaluates
+ * every expression of the corpus at {@link #SAMPLES} x coordinates spread over
+ * <code>[-10, 10]</code>, so real and complex branches are both exercised.
+ * Scores are per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvalBenchmark {
+
+	/* Number of x coordinates per expression and operation */
+	public static final int SAMPLES = 256;
+
+	/* Number of expressions per corpus */
+	private static final int EXPRESSIONS = 4;
+
+	@Param({ "POLYNOMIAL", "TRIG", "COMPLEX_BRANCH", "NESTED" })
+	public Corpus corpus;
+
+	private Expression[] expressions;
+	private EvalStack[] stacks;
+	private double[] xs;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] strings = corpus.getExpressions();
+		expressions = new Expression[EXPRESSIONS];
+		stacks = new EvalStack[EXPRESSIONS];
+
+		for (int i = 0; i < EXPRESSIONS; i++) {
+			expressions[i] = new Expression(strings[i % strings.length]);
+			stacks[i] = expressions[i].newStack();
+		}
+
+		xs = new double[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			xs[i] = -10 + 20.0 * i / (SAMPLES - 1);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EXPRESSIONS * SAMPLES)
+	public void evalBoxed(Blackhole blackhole) {
+		for (Expression expression : expressions) {
+			for (double x : xs) {
+				blackhole.consume(expression.eval(x));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EXPRESSIONS * SAMPLES)
+	public void evalStack(Blackhole blackhole) {
+		for (int i = 0; i < EXPRESSIONS; i++) {
+			EvalStack stack = stacks[i];
+
+			for (double x : xs) {
+				expressions[i].eval(x, stack);
+				blackhole.consume(stack.getReal());
+				blackhole.consume(stack.getImaginary());
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EXPRESSIONS * SAMPLES)
+	public void evalBatch(Blackhole blackhole) {
+		double[] real = new double[SAMPLES];
+		double[] imaginary = new double[SAMPLES];
+
+		for (Expression expression : expressions) {
+			expression.eval(xs, real, imaginary);
+			blackhole.consume(real);
+			blackhole.consume(imaginary);
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package plotter.benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import plotter.expressions.Expression;
+import plotter.expressions.ProgramCache;
+
+/**
+ * Throughput of turning expression strings into something evaluable: the
+ * lexer alone, the lexer and the shunting yard, and the full compilation with
+ * and without the {@link ProgramCache}. Each operation handles the whole
+ * corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+	@Param({ "POLYNOMIAL", "TRIG", "COMPLEX_BRANCH", "NESTED" })
+	public Corpus corpus;
+
+	private String[] expressions;
+	private int maxSize;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		expressions = corpus.getExpressions();
+		maxSize = ProgramCache.MAX_SIZE;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		ProgramCache.MAX_SIZE = maxSize;
+	}
+
+	@Benchmark
+	public void tokenize(Blackhole blackhole) {
+		for (String s : expressions) {
+			Iterator<String> tokenizer = new Expression(s).getExpressionTokenizer();
+
+			while (tokenizer.hasNext()) {
+				blackhole.consume(tokenizer.next());
+			}
+		}
+	}
+
+	@Benchmark
+	public void shuntingYard(Blackhole blackhole) {
+		for (String s : expressions) {
+			blackhole.consume(new Expression(s).toRPN());
+		}
+	}
+
+	@Benchmark
+	public void compile(Blackhole blackhole) {
+		ProgramCache.MAX_SIZE = 0;
+
+		for (String s : expressions) {
+			blackhole.consume(new Expression(s).getProgram());
+		}
+	}
+
+	@Benchmark
+	public void compileCached(Blackhole blackhole) {
+		ProgramCache.MAX_SIZE = maxSize;
+
+		for (String s : expressions) {
+			blackhole.consume(new Expression(s).getProgram());
+		}
+	}
+
+}
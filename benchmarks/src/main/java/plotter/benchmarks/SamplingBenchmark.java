@@ -0,0 +1,93 @@
+package plotter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import plotter.expressions.Expression;
+import plotter.sampling.AdaptiveSampler;
+import plotter.sampling.Decimator;
+import plotter.sampling.Sampler;
+import plotter.sampling.Samples;
+
+/**
+ * Cost of sampling a whole curve for drawing, as a plot does it for the
+ * default axes: the range <code>[-10, 10]</code> on {@link #WIDTH} pixels.
+ * The sample cache is bypassed, each operation samples one curve of every
+ * expression of the corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SamplingBenchmark {
+
+	/* The viewport */
+	public static final double LOWER_BOUND = -10;
+	public static final double UPPER_BOUND = 10;
+	public static final int WIDTH = 1000;
+	public static final int HEIGHT = 750;
+
+	@Param({ "POLYNOMIAL", "TRIG", "COMPLEX_BRANCH", "NESTED" })
+	public Corpus corpus;
+
+	@Param({ "2" })
+	public double samplesPerPixel;
+
+	private Expression[] expressions;
+	private double[] xs;
+	private double xScale;
+	private double yScale;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] strings = corpus.getExpressions();
+		expressions = new Expression[strings.length];
+
+		for (int i = 0; i < strings.length; i++) {
+			expressions[i] = new Expression(strings[i]);
+		}
+
+		xScale = WIDTH / (UPPER_BOUND - LOWER_BOUND);
+		yScale = HEIGHT / (UPPER_BOUND - LOWER_BOUND);
+		xs = Samples.lattice(LOWER_BOUND, UPPER_BOUND, 1 / (xScale * samplesPerPixel));
+	}
+
+	@Benchmark
+	public void uniform(Blackhole blackhole) {
+		for (Expression expression : expressions) {
+			blackhole.consume(Sampler.sample(expression, xs));
+		}
+	}
+
+	@Benchmark
+	public void adaptive(Blackhole blackhole) {
+		for (Expression expression : expressions) {
+			blackhole.consume(
+					AdaptiveSampler.sample(expression, LOWER_BOUND, UPPER_BOUND, xScale, yScale, () -> false));
+		}
+	}
+
+	@Benchmark
+	public void uniformDecimated(Blackhole blackhole) {
+		for (Expression expression : expressions) {
+			Samples samples = Sampler.sample(expression, xs);
+			blackhole.consume(Decimator.decimate(samples, LOWER_BOUND, xScale, WIDTH));
+		}
+	}
+
+}
@@ -0,0 +1,652 @@
+package plotter.expressions;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.LongAdder;
+
+import plotter.expressions.ClassBuilder.Code;
+import plotter.metrics.Metrics;
+
+/**
+ * Optional backend that compiles hot {@link Program}s into hidden classes. The
+ * generated code keeps the real and imaginary part of every stack entry in
+ * local variables and calls {@link Math} directly, without creating any
+ * {@link ComplexNumber}. The formulas are the same as in {@link ComplexNumber},
+ * so the results do not depend on the backend.
+ *
+ * Programs using operators or functions the compiler does not know are left to
+ * the interpreter. The backend can be switched off at any time, the counters
+ * allow to compare the time per sample of both backends.
+ */
+public final class BytecodeCompiler {
+
+	/* Switch and number of batch evaluations before a program is compiled */
+	private static volatile boolean enabled = true;
+	private static volatile int threshold = 2;
+
+	/* Counters */
+	private static final LongAdder compiledPrograms = new LongAdder();
+	private static final LongAdder unsupportedPrograms = new LongAdder();
+	private static final LongAdder generatedSamples = new LongAdder();
+	private static final LongAdder generatedNanos = new LongAdder();
+	private static final LongAdder interpretedSamples = new LongAdder();
+	private static final LongAdder interpretedNanos = new LongAdder();
+
+	static {
+		Metrics.register("samples.generated", BytecodeCompiler::getGeneratedSamples);
+		Metrics.register("samples.interpreted", BytecodeCompiler::getInterpretedSamples);
+		Metrics.register("programs.compiled", BytecodeCompiler::getCompiledPrograms);
+	}
+
+	/* Name of the generated classes, the JVM adds a unique suffix */
+	private static final String CLASS_NAME = "plotter/expressions/Generated";
+	private static final String DESCRIPTOR = "([[D[[D[D[DII)V";
+
+	/* Locals of the generated method */
+	private static final int REAL = 1;
+	private static final int IMAGINARY = 2;
+	private static final int RESULT_REAL = 3;
+	private static final int RESULT_IMAGINARY = 4;
+	private static final int FROM = 5;
+	private static final int TO = 6;
+	private static final int INDEX = 7;
+	private static final int STACK = 8;
+
+	/* Limits of the class file format */
+	private static final int MAX_LOCALS = 256;
+	private static final int MAX_JUMP = Short.MAX_VALUE;
+
+	private BytecodeCompiler() {
+		// No instantiation
+	}
+
+	/* Switch */
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		BytecodeCompiler.enabled = enabled;
+	}
+
+	public static int getThreshold() {
+		return threshold;
+	}
+
+	public static void setThreshold(int threshold) {
+		BytecodeCompiler.threshold = threshold;
+	}
+
+	/* Counters */
+
+	public static long getCompiledPrograms() {
+		return compiledPrograms.sum();
+	}
+
+	public static long getUnsupportedPrograms() {
+		return unsupportedPrograms.sum();
+	}
+
+	public static long getGeneratedSamples() {
+		return generatedSamples.sum();
+	}
+
+	public static long getGeneratedNanos() {
+		return generatedNanos.sum();
+	}
+
+	public static long getInterpretedSamples() {
+		return interpretedSamples.sum();
+	}
+
+	public static long getInterpretedNanos() {
+		return interpretedNanos.sum();
+	}
+
+	public static void resetCounters() {
+		compiledPrograms.reset();
+		unsupportedPrograms.reset();
+		generatedSamples.reset();
+		generatedNanos.reset();
+		interpretedSamples.reset();
+		interpretedNanos.reset();
+	}
+
+	static void countGenerated(int samples, long nanos) {
+		generatedSamples.add(samples);
+		generatedNanos.add(nanos);
+	}
+
+	static void countInterpreted(int samples, long nanos) {
+		interpretedSamples.add(samples);
+		interpretedNanos.add(nanos);
+	}
+
+	/**
+	 * Looks up the generated code of a program. A program is compiled once it has
+	 * been evaluated more often than the threshold. Programs may be evaluated by
+	 * several threads, but are compiled only once.
+	 *
+	 * @param program
+	 *            The program.
+	 * @return The generated code or <code>null</code>, if the program should be
+	 *         interpreted.
+	 */
+	static GeneratedProgram lookup(Program program) {
+		if (!enabled || program.unsupported) {
+			return null;
+		}
+
+		if (program.generated == null && program.batches.getAndIncrement() >= threshold) {
+			synchronized (program.compileLock) {
+				if (program.generated == null && !program.unsupported) {
+					program.generated = compile(program);
+					program.unsupported = program.generated == null;
+				}
+			}
+		}
+
+		return program.generated;
+	}
+
+	/**
+	 * Compiles a program into a hidden class.
+	 *
+	 * @param program
+	 *            The program.
+	 * @return The generated code or <code>null</code>, if the program is not
+	 *         supported.
+	 */
+	static GeneratedProgram compile(Program program) {
+		try {
+			byte[] bytes = new Generator(program).generate();
+
+			if (bytes != null) {
+				Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+				GeneratedProgram generated = (GeneratedProgram) MethodHandles.lookup()
+						.findConstructor(c, MethodType.methodType(void.class)).invoke();
+
+				compiledPrograms.increment();
+				return generated;
+			}
+		} catch (Throwable e) {
+			// Fall back to the interpreter
+		}
+
+		unsupportedPrograms.increment();
+		return null;
+	}
+
+	/**
+	 * Generates the class file for one program. Stack entry <code>k</code> of the
+	 * program is kept in the locals <code>STACK + 4k</code> (real part) and
+	 * <code>STACK + 4k + 2</code> (imaginary part). The temporaries of the
+	 * program follow after the stack, then the temporaries used by compound
+	 * functions.
+	 */
+	private static class Generator {
+
+		private final Program program;
+		private final ClassBuilder builder;
+		private final Code code;
+
+		/* Temporaries, complex values take four slots, doubles two */
+		private final int t1;
+		private final int t2;
+		private final int t3;
+		private final int one;
+		private final int s1;
+		private final int s2;
+
+		Generator(Program program) {
+			this.program = program;
+			this.builder = new ClassBuilder(CLASS_NAME, "plotter/expressions/GeneratedProgram");
+
+			t1 = temp(program.getNumTemps());
+			t2 = t1 + 4;
+			t3 = t2 + 4;
+			one = t3 + 4;
+			s1 = one + 4;
+			s2 = s1 + 2;
+			code = new Code(s2 + 2);
+		}
+
+		/**
+		 * Generates the class file.
+		 *
+		 * @return The bytes of the class file or <code>null</code>, if the program
+		 *         is not supported.
+		 */
+		byte[] generate() {
+			if (s2 + 2 > MAX_LOCALS) {
+				return null;
+			}
+
+			int[] frame = { ClassBuilder.ITEM_OBJECT, builder.getThisClass(), ClassBuilder.ITEM_OBJECT,
+					builder.classRef("[[D"), ClassBuilder.ITEM_OBJECT, builder.classRef("[[D"),
+					ClassBuilder.ITEM_OBJECT, builder.classRef("[D"), ClassBuilder.ITEM_OBJECT, builder.classRef("[D"),
+					ClassBuilder.ITEM_INTEGER, 0, ClassBuilder.ITEM_INTEGER, 0, ClassBuilder.ITEM_INTEGER, 0 };
+
+			code.iload(FROM);
+			code.istore(INDEX);
+
+			int loop = code.position();
+			code.frame(frame);
+			code.iload(INDEX);
+			code.iload(TO);
+			int exit = code.jump(ClassBuilder.IF_ICMPGE, -2, -1);
+
+			int top = 0;
+			for (int i = 0; i < program.size(); i++) {
+				switch (program.codeAt(i)) {
+				case Program.CONSTANT:
+					constant(program.constantAt(i).getReal());
+					constant(program.constantAt(i).getImaginary());
+					store(entry(top++));
+					break;
+				case Program.VARIABLE:
+					column(REAL, program.slotAt(i));
+					column(IMAGINARY, program.slotAt(i));
+					store(entry(top++));
+					break;
+				case Program.OPERATOR:
+					top--;
+					if (!operator(program.operatorAt(i).getOperator(), entry(top - 1), entry(top))) {
+						return null;
+					}
+					break;
+				case Program.FUNCTION:
+					top -= program.functionAt(i).getNumParams();
+					if (program.functionAt(i).getNumParams() != 1
+							|| !function(program.functionAt(i).getName(), entry(top))) {
+						return null;
+					}
+					top++;
+					break;
+				case Program.STORE:
+					load(entry(top - 1));
+					load(entry(top - 1) + 2);
+					store(temp(program.slotAt(i)));
+					break;
+				case Program.LOAD:
+					load(temp(program.slotAt(i)));
+					load(temp(program.slotAt(i)) + 2);
+					store(entry(top++));
+					break;
+				}
+			}
+
+			result(RESULT_REAL, entry(top - 1));
+			result(RESULT_IMAGINARY, entry(top - 1) + 2);
+			code.emit(ClassBuilder.IINC, 0);
+			code.u1(INDEX);
+			code.u1(1);
+			code.jump(ClassBuilder.GOTO, 0, loop);
+
+			code.patch(exit, code.position());
+			code.frame(frame);
+			code.emit(ClassBuilder.RETURN, 0);
+
+			if (code.position() > MAX_JUMP) {
+				return null;
+			}
+
+			builder.addMethod("eval", DESCRIPTOR, code);
+			return builder.toByteArray();
+		}
+
+		private static int entry(int k) {
+			return STACK + 4 * k;
+		}
+
+		private int temp(int k) {
+			return entry(program.getMaxDepth() + k);
+		}
+
+		/* Operators and functions */
+
+		private boolean operator(String operator, int x, int y) {
+			switch (operator) {
+			case "+":
+				add(x, y, x);
+				return true;
+			case "-":
+				subtract(x, y, x);
+				return true;
+			case "*":
+				multiply(x, y, x);
+				return true;
+			case "/":
+				divide(x, y, x);
+				return true;
+			case "^":
+				ln(x, t1);
+				multiply(t1, y, t2);
+				exp(t2, x);
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		private boolean function(String function, int x) {
+			switch (function) {
+			case "SIN":
+				sin(x, x);
+				return true;
+			case "COS":
+				cos(x, x);
+				return true;
+			case "TAN":
+				tan(x, x);
+				return true;
+			case "SEC":
+				cos(x, t2);
+				one(one);
+				divide(one, t2, x);
+				return true;
+			case "CSC":
+				sin(x, t2);
+				one(one);
+				divide(one, t2, x);
+				return true;
+			case "COT":
+				tan(x, t3);
+				one(one);
+				divide(one, t3, x);
+				return true;
+			case "SINH":
+				sinh(x, x);
+				return true;
+			case "COSH":
+				cosh(x, x);
+				return true;
+			case "TANH":
+				sinh(x, t1);
+				cosh(x, t2);
+				divide(t1, t2, x);
+				return true;
+			case "ABS":
+				modulus(x);
+				constant(0);
+				store(x);
+				return true;
+			case "LN":
+				ln(x, x);
+				return true;
+			case "LOG2":
+				ln(x, x);
+				quotient(x, 2.0, x);
+				return true;
+			case "LOG10":
+				ln(x, x);
+				quotient(x, 10.0, x);
+				return true;
+			case "SQRT":
+				sqrt(x, x);
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		/* Complex arithmetic, see ComplexNumber */
+
+		private void add(int x, int y, int dst) {
+			load(x);
+			load(y);
+			op(ClassBuilder.DADD);
+			load(x + 2);
+			load(y + 2);
+			op(ClassBuilder.DADD);
+			store(dst);
+		}
+
+		private void subtract(int x, int y, int dst) {
+			load(x);
+			load(y);
+			op(ClassBuilder.DSUB);
+			load(x + 2);
+			load(y + 2);
+			op(ClassBuilder.DSUB);
+			store(dst);
+		}
+
+		private void multiply(int x, int y, int dst) {
+			product(x, y);
+			product(x + 2, y + 2);
+			op(ClassBuilder.DSUB);
+			product(x, y + 2);
+			product(x + 2, y);
+			op(ClassBuilder.DADD);
+			store(dst);
+		}
+
+		private void divide(int x, int y, int dst) {
+			modulus(y);
+			constant(2);
+			math2("pow");
+			code.dstore(s1);
+
+			product(x, y);
+			product(x + 2, y + 2);
+			op(ClassBuilder.DADD);
+			load(s1);
+			op(ClassBuilder.DDIV);
+			product(x + 2, y);
+			product(x, y + 2);
+			op(ClassBuilder.DSUB);
+			load(s1);
+			op(ClassBuilder.DDIV);
+			store(dst);
+		}
+
+		private void quotient(int x, double d, int dst) {
+			load(x);
+			constant(d);
+			op(ClassBuilder.DDIV);
+			load(x + 2);
+			constant(d);
+			op(ClassBuilder.DDIV);
+			store(dst);
+		}
+
+		private void exp(int x, int dst) {
+			load(x);
+			math("exp");
+			code.dstore(s1);
+
+			load(s1);
+			load(x + 2);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			load(s1);
+			load(x + 2);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void ln(int x, int dst) {
+			modulus(x);
+			math("log");
+			argument(x);
+			store(dst);
+		}
+
+		private void sqrt(int x, int dst) {
+			modulus(x);
+			math("sqrt");
+			code.dstore(s1);
+			argument(x);
+			constant(2);
+			op(ClassBuilder.DDIV);
+			code.dstore(s2);
+
+			load(s1);
+			load(s2);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			load(s1);
+			load(s2);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void sin(int x, int dst) {
+			cosh(x + 2);
+			load(x);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			sinh(x + 2);
+			load(x);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void cos(int x, int dst) {
+			cosh(x + 2);
+			load(x);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			sinh(x + 2);
+			code.emit(ClassBuilder.DNEG, 0);
+			load(x);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void tan(int x, int dst) {
+			sin(x, t1);
+			cos(x, t2);
+			divide(t1, t2, dst);
+		}
+
+		private void sinh(int x, int dst) {
+			sinh(x);
+			load(x + 2);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			cosh(x);
+			load(x + 2);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void cosh(int x, int dst) {
+			cosh(x);
+			load(x + 2);
+			math("cos");
+			op(ClassBuilder.DMUL);
+			sinh(x);
+			load(x + 2);
+			math("sin");
+			op(ClassBuilder.DMUL);
+			store(dst);
+		}
+
+		private void one(int dst) {
+			constant(1);
+			constant(0);
+			store(dst);
+		}
+
+		/* Real helpers, each pushes one double */
+
+		private void product(int a, int b) {
+			load(a);
+			load(b);
+			op(ClassBuilder.DMUL);
+		}
+
+		private void modulus(int x) {
+			product(x, x);
+			product(x + 2, x + 2);
+			op(ClassBuilder.DADD);
+			math("sqrt");
+		}
+
+		private void argument(int x) {
+			load(x + 2);
+			load(x);
+			math2("atan2");
+		}
+
+		private void cosh(int local) {
+			hyperbolic(local, ClassBuilder.DADD);
+		}
+
+		private void sinh(int local) {
+			hyperbolic(local, ClassBuilder.DSUB);
+		}
+
+		private void hyperbolic(int local, int opcode) {
+			load(local);
+			math("exp");
+			load(local);
+			code.emit(ClassBuilder.DNEG, 0);
+			math("exp");
+			op(opcode);
+			constant(2);
+			op(ClassBuilder.DDIV);
+		}
+
+		/* Instructions */
+
+		private void load(int local) {
+			code.dload(local);
+		}
+
+		/**
+		 * Stores the complex value on top of the operand stack, the imaginary part
+		 * being the topmost double.
+		 */
+		private void store(int dst) {
+			code.dstore(dst + 2);
+			code.dstore(dst);
+		}
+
+		private void constant(double d) {
+			code.ldc2(builder.doubleConstant(d));
+		}
+
+		private void op(int opcode) {
+			code.emit(opcode, -2);
+		}
+
+		private void math(String name) {
+			code.invokeStatic(builder.methodRef("java/lang/Math", name, "(D)D"), 1);
+		}
+
+		private void math2(String name) {
+			code.invokeStatic(builder.methodRef("java/lang/Math", name, "(DD)D"), 2);
+		}
+
+		/**
+		 * Pushes the value of a variable for the current row.
+		 */
+		private void column(int columns, int slot) {
+			code.aload(columns);
+			code.iconst(slot);
+			code.emit(ClassBuilder.AALOAD, -1);
+			code.iload(INDEX);
+			code.emit(ClassBuilder.DALOAD, 0);
+		}
+
+		/**
+		 * Stores a double local into a result array for the current row.
+		 */
+		private void result(int array, int local) {
+			code.aload(array);
+			code.iload(INDEX);
+			load(local);
+			code.emit(ClassBuilder.DASTORE, -4);
+		}
+	}
+
+}
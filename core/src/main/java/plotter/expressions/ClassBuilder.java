@@ -0,0 +1,420 @@
+package plotter.expressions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer used by the {@link BytecodeCompiler}. It supports
+ * exactly what the generated programs need: one class with a default
+ * constructor and public methods, a constant pool with classes, method
+ * references and doubles and a <code>StackMapTable</code> made of full frames.
+ */
+class ClassBuilder {
+
+	/* Opcodes */
+	static final int ICONST_0 = 0x03;
+	static final int DCONST_0 = 0x0e;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC2_W = 0x14;
+	static final int ILOAD = 0x15;
+	static final int DLOAD = 0x18;
+	static final int ALOAD = 0x19;
+	static final int DALOAD = 0x31;
+	static final int AALOAD = 0x32;
+	static final int ISTORE = 0x36;
+	static final int DSTORE = 0x39;
+	static final int DASTORE = 0x52;
+	static final int DADD = 0x63;
+	static final int DSUB = 0x67;
+	static final int DMUL = 0x6b;
+	static final int DDIV = 0x6f;
+	static final int DNEG = 0x77;
+	static final int IINC = 0x84;
+	static final int IF_ICMPGE = 0xa2;
+	static final int GOTO = 0xa7;
+	static final int RETURN = 0xb1;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+
+	/* Verification types of the stack map frames */
+	static final int ITEM_INTEGER = 1;
+	static final int ITEM_OBJECT = 7;
+
+	/* Access flags */
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	/* Java 17 */
+	private static final int VERSION = 61;
+
+	/* Constant pool tags */
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private Map<String, Integer> entries = new HashMap<String, Integer>();
+	private int poolSize = 1;
+
+	private ByteArrayOutputStream methods = new ByteArrayOutputStream();
+	private DataOutputStream methodsOut = new DataOutputStream(methods);
+	private int methodCount = 0;
+
+	private final int thisClass;
+	private final int superClass;
+	private final int[] interfaces;
+
+	/**
+	 * Creates a new class.
+	 *
+	 * @param name
+	 *            The internal name of the class.
+	 * @param interfaceNames
+	 *            The internal names of the implemented interfaces.
+	 */
+	ClassBuilder(String name, String... interfaceNames) {
+		thisClass = classRef(name);
+		superClass = classRef("java/lang/Object");
+		interfaces = new int[interfaceNames.length];
+
+		for (int i = 0; i < interfaceNames.length; i++) {
+			interfaces[i] = classRef(interfaceNames[i]);
+		}
+
+		Code code = new Code(1);
+		code.aload(0);
+		code.emit(INVOKESPECIAL, -1);
+		code.u2(methodRef("java/lang/Object", "<init>", "()V"));
+		code.emit(RETURN, 0);
+		addMethod("<init>", "()V", code);
+	}
+
+	int getThisClass() {
+		return thisClass;
+	}
+
+	/* Constant pool */
+
+	private int entry(String key, int size, byte[] bytes) {
+		Integer index = entries.get(key);
+		if (index != null) {
+			return index;
+		}
+
+		pool.write(bytes, 0, bytes.length);
+		entries.put(key, poolSize);
+		poolSize += size;
+		return poolSize - size;
+	}
+
+	int utf8(String value) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(CONSTANT_UTF8);
+			out.writeUTF(value);
+			return entry("U" + value, 1, bytes.toByteArray());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	int classRef(String name) {
+		return entry("C" + name, 1, new byte[] { CONSTANT_CLASS, hi(utf8(name)), lo(utf8(name)) });
+	}
+
+	int doubleConstant(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		byte[] bytes = new byte[9];
+		bytes[0] = CONSTANT_DOUBLE;
+
+		for (int i = 0; i < 8; i++) {
+			bytes[8 - i] = (byte) (bits >>> (8 * i));
+		}
+
+		return entry("D" + bits, 2, bytes);
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		int nameAndType = entry("N" + name + descriptor, 1, new byte[] { CONSTANT_NAME_AND_TYPE, hi(utf8(name)),
+				lo(utf8(name)), hi(utf8(descriptor)), lo(utf8(descriptor)) });
+		return entry("M" + owner + "." + name + descriptor, 1, new byte[] { CONSTANT_METHODREF, hi(classRef(owner)),
+				lo(classRef(owner)), hi(nameAndType), lo(nameAndType) });
+	}
+
+	private static byte hi(int value) {
+		return (byte) (value >>> 8);
+	}
+
+	private static byte lo(int value) {
+		return (byte) value;
+	}
+
+	/* Methods */
+
+	/**
+	 * Adds a public method.
+	 *
+	 * @param name
+	 *            The method name.
+	 * @param descriptor
+	 *            The method descriptor.
+	 * @param code
+	 *            The method body.
+	 */
+	void addMethod(String name, String descriptor, Code code) {
+		try {
+			int codeName = utf8("Code");
+			int stackMapName = code.frames.size() > 0 ? utf8("StackMapTable") : 0;
+			byte[] frames = code.frames.toByteArray();
+			byte[] bytes = code.bytes.toByteArray();
+
+			methodsOut.writeShort(ACC_PUBLIC);
+			methodsOut.writeShort(utf8(name));
+			methodsOut.writeShort(utf8(descriptor));
+			methodsOut.writeShort(1);
+
+			methodsOut.writeShort(codeName);
+			methodsOut.writeInt(12 + bytes.length + (frames.length > 0 ? 8 + frames.length : 0));
+			methodsOut.writeShort(code.maxStack);
+			methodsOut.writeShort(code.maxLocals);
+			methodsOut.writeInt(bytes.length);
+			methodsOut.write(bytes);
+			methodsOut.writeShort(0);
+
+			if (frames.length > 0) {
+				methodsOut.writeShort(1);
+				methodsOut.writeShort(stackMapName);
+				methodsOut.writeInt(2 + frames.length);
+				methodsOut.writeShort(code.frameCount);
+				methodsOut.write(frames);
+			} else {
+				methodsOut.writeShort(0);
+			}
+
+			methodCount++;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the class file.
+	 *
+	 * @return The bytes of the class file.
+	 */
+	byte[] toByteArray() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolSize);
+			out.write(pool.toByteArray());
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+
+			for (int i : interfaces) {
+				out.writeShort(i);
+			}
+
+			out.writeShort(0);
+			out.writeShort(methodCount);
+			out.write(methods.toByteArray());
+			out.writeShort(0);
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The body of a method. Keeps track of the operand stack size, so the
+	 * maximum stack size does not have to be given.
+	 */
+	static class Code {
+
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		private int frameCount = 0;
+		private int lastFrame = -1;
+
+		private int stack = 0;
+		private int maxStack = 0;
+		private int maxLocals;
+
+		/**
+		 * Creates a new method body.
+		 *
+		 * @param maxLocals
+		 *            The number of local variable slots, including the parameters.
+		 */
+		Code(int maxLocals) {
+			this.maxLocals = maxLocals;
+		}
+
+		int position() {
+			return bytes.size();
+		}
+
+		/**
+		 * Emits an instruction.
+		 *
+		 * @param opcode
+		 *            The opcode.
+		 * @param stackDelta
+		 *            The change of the operand stack size in words.
+		 */
+		void emit(int opcode, int stackDelta) {
+			bytes.write(opcode);
+			stack += stackDelta;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		void u1(int value) {
+			bytes.write(value);
+		}
+
+		void u2(int value) {
+			bytes.write(value >>> 8);
+			bytes.write(value);
+		}
+
+		/* Shortcuts */
+
+		void aload(int local) {
+			emit(ALOAD, 1);
+			u1(local);
+		}
+
+		void iload(int local) {
+			emit(ILOAD, 1);
+			u1(local);
+		}
+
+		void istore(int local) {
+			emit(ISTORE, -1);
+			u1(local);
+		}
+
+		void dload(int local) {
+			emit(DLOAD, 2);
+			u1(local);
+		}
+
+		void dstore(int local) {
+			emit(DSTORE, -2);
+			u1(local);
+		}
+
+		void iconst(int value) {
+			if (value >= 0 && value <= 5) {
+				emit(ICONST_0 + value, 1);
+			} else if (value <= Byte.MAX_VALUE) {
+				emit(BIPUSH, 1);
+				u1(value);
+			} else {
+				emit(SIPUSH, 1);
+				u2(value);
+			}
+		}
+
+		void ldc2(int index) {
+			emit(LDC2_W, 2);
+			u2(index);
+		}
+
+		/**
+		 * Emits a call to a static method taking and returning doubles.
+		 *
+		 * @param methodRef
+		 *            The constant pool index of the method.
+		 * @param params
+		 *            The number of double parameters.
+		 */
+		void invokeStatic(int methodRef, int params) {
+			emit(INVOKESTATIC, 2 - 2 * params);
+			u2(methodRef);
+		}
+
+		/**
+		 * Emits a jump. The target of forward jumps has to be patched later.
+		 *
+		 * @param opcode
+		 *            The jump opcode.
+		 * @param stackDelta
+		 *            The change of the operand stack size in words.
+		 * @param target
+		 *            The target position or <code>-1</code>, if not known yet.
+		 * @return The position of the jump instruction.
+		 */
+		int jump(int opcode, int stackDelta, int target) {
+			int position = position();
+			emit(opcode, stackDelta);
+			u2(target < 0 ? 0 : target - position);
+			return position;
+		}
+
+		/**
+		 * Patches the target of a forward jump.
+		 *
+		 * @param jump
+		 *            The position of the jump instruction.
+		 * @param target
+		 *            The target position.
+		 */
+		void patch(int jump, int target) {
+			byte[] code = bytes.toByteArray();
+			int offset = target - jump;
+			code[jump + 1] = (byte) (offset >>> 8);
+			code[jump + 2] = (byte) offset;
+			bytes.reset();
+			bytes.write(code, 0, code.length);
+		}
+
+		/**
+		 * Adds a full frame with an empty operand stack at the current position.
+		 *
+		 * @param locals
+		 *            The verification types of the locals, two entries per local:
+		 *            the item tag and the constant pool index of the class for
+		 *            object items.
+		 */
+		void frame(int... locals) {
+			int offset = position();
+			int delta = lastFrame < 0 ? offset : offset - lastFrame - 1;
+			lastFrame = offset;
+			frameCount++;
+
+			frames.write(255);
+			frames.write(delta >>> 8);
+			frames.write(delta);
+			frames.write(0);
+			frames.write(locals.length / 2);
+
+			for (int i = 0; i < locals.length; i += 2) {
+				frames.write(locals[i]);
+
+				if (locals[i] == ITEM_OBJECT) {
+					frames.write(locals[i + 1] >>> 8);
+					frames.write(locals[i + 1]);
+				}
+			}
+
+			frames.write(0);
+			frames.write(0);
+		}
+	}
+
+}
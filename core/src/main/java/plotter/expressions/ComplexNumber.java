@@ -1,9 +1,18 @@
 package plotter.expressions;
 
-public class ComplexNumber {
+/**
+ * Immutable complex number. Every operation returns a new number, so numbers
+ * and the constants of this class can be shared between threads and cached
+ * freely.
+ *
+ * The results of comparisons and logical operators are the numbers
+ * {@link #TRUE} and {@link #FALSE}. They equal {@link #ONE} and {@link #ZERO},
+ * but are marked to be interpreted as boolean values.
+ */
+public final class ComplexNumber {
 
 	@SuppressWarnings("serial")
-	private class ComplexArithmeticException extends RuntimeException {
+	private static class ComplexArithmeticException extends RuntimeException {
 
 		public ComplexArithmeticException(String message) {
 			super(message);
@@ -12,25 +21,29 @@ public class ComplexNumber {
 	}
 
 	/* The real and imaginary part */
-	private double real;
-	private double imaginary;
+	private final double real;
+	private final double imaginary;
 
 	/* Wether to interpret the value as boolean or not */
-	private boolean asBoolean;
-
-	public static ComplexNumber ZERO = new ComplexNumber(0, 0);
-	public static ComplexNumber I = new ComplexNumber(0, 1);
-	public static ComplexNumber NEGATIVE_I = new ComplexNumber(0, -1);
-	public static ComplexNumber ONE = new ComplexNumber(1, 0);
-	public static ComplexNumber NEGATIVE_ONE = new ComplexNumber(-1, 0);
-	public static ComplexNumber NaN = new ComplexNumber(Double.NaN, Double.NaN);
-	public static ComplexNumber MAX_VALUE = new ComplexNumber(Double.MAX_VALUE, Double.MAX_VALUE);
-	public static ComplexNumber MIN_VALUE = new ComplexNumber(Double.MIN_VALUE, Double.MIN_VALUE);
-	public static ComplexNumber POSITIVE_INFINITY = new ComplexNumber(Double.POSITIVE_INFINITY,
+	private final boolean asBoolean;
+
+	public static final ComplexNumber ZERO = new ComplexNumber(0, 0);
+	public static final ComplexNumber I = new ComplexNumber(0, 1);
+	public static final ComplexNumber NEGATIVE_I = new ComplexNumber(0, -1);
+	public static final ComplexNumber ONE = new ComplexNumber(1, 0);
+	public static final ComplexNumber NEGATIVE_ONE = new ComplexNumber(-1, 0);
+	public static final ComplexNumber NaN = new ComplexNumber(Double.NaN, Double.NaN);
+	public static final ComplexNumber MAX_VALUE = new ComplexNumber(Double.MAX_VALUE, Double.MAX_VALUE);
+	public static final ComplexNumber MIN_VALUE = new ComplexNumber(Double.MIN_VALUE, Double.MIN_VALUE);
+	public static final ComplexNumber POSITIVE_INFINITY = new ComplexNumber(Double.POSITIVE_INFINITY,
 			Double.POSITIVE_INFINITY);
-	public static ComplexNumber NEGATIVE_INFINITY = new ComplexNumber(Double.NEGATIVE_INFINITY,
+	public static final ComplexNumber NEGATIVE_INFINITY = new ComplexNumber(Double.NEGATIVE_INFINITY,
 			Double.NEGATIVE_INFINITY);
-	public static ComplexNumber PI = new ComplexNumber(Math.PI);
+	public static final ComplexNumber PI = new ComplexNumber(Math.PI);
+
+	/* Boolean results */
+	public static final ComplexNumber TRUE = new ComplexNumber(1, 0, true);
+	public static final ComplexNumber FALSE = new ComplexNumber(0, 0, true);
 
 	public ComplexNumber(double real) {
 		this(real, 0);
@@ -41,14 +54,28 @@ public class ComplexNumber {
 	}
 
 	public ComplexNumber(double real, double imaginary) {
+		this(real, imaginary, false);
+	}
+
+	public ComplexNumber(ComplexNumber w) {
+		this(w.getReal(), w.getImaginary(), false);
+	}
+
+	private ComplexNumber(double real, double imaginary, boolean asBoolean) {
 		this.real = real;
 		this.imaginary = imaginary;
-		this.asBoolean = false;
+		this.asBoolean = asBoolean;
 	}
 
-	public ComplexNumber(ComplexNumber w) {
-		this.real = w.getReal();
-		this.imaginary = w.getImaginary();
+	/**
+	 * Returns the boolean result for a condition.
+	 *
+	 * @param b
+	 *            The condition.
+	 * @return {@link #TRUE} or {@link #FALSE}.
+	 */
+	public static ComplexNumber valueOf(boolean b) {
+		return b ? TRUE : FALSE;
 	}
 
 	/* Getters */
@@ -61,9 +88,18 @@ public class ComplexNumber {
 		return imaginary;
 	}
 
+	/**
+	 * Returns this number marked to be interpreted as boolean value. The number
+	 * itself is not changed.
+	 *
+	 * @return A boolean number with the value of this number.
+	 */
 	public ComplexNumber valueAsBoolean() {
-		this.asBoolean = true;
-		return this;
+		if (asBoolean) {
+			return this;
+		}
+
+		return new ComplexNumber(real, imaginary, true);
 	}
 
 	/* Complex number representations */
@@ -137,20 +173,38 @@ public class ComplexNumber {
 				(imaginary * w.getReal() - real * w.getImaginary()) / den);
 	}
 
+	/**
+	 * Divides two real numbers exactly like {@link #divide(ComplexNumber)} does,
+	 * so real and complex evaluation give the same results.
+	 *
+	 * @param a
+	 *            The dividend.
+	 * @param c
+	 *            The divisor.
+	 * @return The real part of the quotient.
+	 */
+	static double quotient(double a, double c) {
+		return (a * c) / Math.pow(Math.sqrt(c * c), 2);
+	}
+
 	public ComplexNumber divide(double d) {
 		return new ComplexNumber(real / d, imaginary / d);
 	}
 
 	public ComplexNumber remainder(ComplexNumber w) {
-		ComplexNumber z = new ComplexNumber(Math.round(this.divide(w).getReal()),
-				Math.round(this.divide(w).getImaginary()));
-		return this.subtract(z.multiply(w));
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.remainder(real, imaginary, w.getReal(), w.getImaginary(), re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Power */
 
 	public ComplexNumber power(ComplexNumber w) {
-		return ln().multiply(w).exp();
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.power(real, imaginary, w.getReal(), w.getImaginary(), re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	public ComplexNumber power(double d) {
@@ -187,7 +241,10 @@ public class ComplexNumber {
 	/* Logarithm with custom base */
 
 	public ComplexNumber log(double base) {
-		return ln().divide(base);
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.log(real, imaginary, base, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Inverse the ComplexNumber number */
@@ -216,16 +273,19 @@ public class ComplexNumber {
 	}
 
 	public ComplexNumber tan() {
-		return (sin()).divide(cos());
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.tan(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Sine, cosine and tangent hyperbolicus */
 
-	private double cosh(double theta) {
+	static double cosh(double theta) {
 		return (Math.exp(theta) + Math.exp(-theta)) / 2;
 	}
 
-	private double sinh(double theta) {
+	static double sinh(double theta) {
 		return (Math.exp(theta) - Math.exp(-theta)) / 2;
 	}
 
@@ -238,41 +298,56 @@ public class ComplexNumber {
 	}
 
 	public ComplexNumber tanh() {
-		return (sinh()).divide(cosh());
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.tanh(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Arcsine, arccosine and arctangent */
 
 	public ComplexNumber arcsin() {
-		ComplexNumber w = ONE.subtract(multiply(this)).sqrt().add(multiply(I));
-		return new ComplexNumber(I.multiply(w.ln()).multiply(NEGATIVE_ONE));
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.arcsin(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	public ComplexNumber arccos() {
-		ComplexNumber w = multiply(this).subtract(ONE).sqrt().add(this).ln().multiply(NEGATIVE_I);
-		if (w.getReal() >= 0) {
-			return new ComplexNumber(w.getReal(), -w.getImaginary());
-		} else {
-			return w.negate();
-		}
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.arccos(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	public ComplexNumber arctan() {
-		return NEGATIVE_I.multiply(subtract(I).divide(negate().subtract(I)).ln()).divide(2.0);
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.arctan(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Cotangent, secant and cosecant */
 
 	public ComplexNumber cot() {
-		return ONE.divide(tan());
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.cot(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	public ComplexNumber sec() {
-		return ONE.divide(cos());
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.sec(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	public ComplexNumber csc() {
-		return ONE.divide(sin());
+		double[] re = new double[1];
+		double[] im = new double[1];
+		ComplexUtil.csc(real, imaginary, re, im, 0);
+		return new ComplexNumber(re[0], im[0]);
 	}
 
 	/* Negate a complex number */
@@ -301,24 +376,57 @@ public class ComplexNumber {
 
 	/* Object methods */
 
-	public boolean equals(ComplexNumber w) {
+	/**
+	 * Compares the numbers arithmetically like the operator <code>==</code>
+	 * does, so {@link #NaN} is not equal to itself and <code>0</code> equals
+	 * <code>-0</code>. This is the comparison of expressions.
+	 *
+	 * @param w
+	 *            The number to compare with.
+	 * @return Whether both parts are equal.
+	 */
+	public boolean isEqualTo(ComplexNumber w) {
 		return real == w.getReal() && imaginary == w.getImaginary();
 	}
 
-	public boolean equals(double d) {
+	public boolean isEqualTo(double d) {
 		return real == d;
 	}
 
+	/**
+	 * Compares the parts of the numbers like {@link Double#equals(Object)}, so
+	 * {@link #NaN} equals itself and <code>0</code> differs from
+	 * <code>-0</code>. This keeps equality reflexive for maps and caches, the
+	 * arithmetic comparison is {@link #isEqualTo(ComplexNumber)}.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ComplexNumber)) {
+			return false;
+		}
+
+		ComplexNumber w = (ComplexNumber) o;
+		return Double.compare(real, w.getReal()) == 0 && Double.compare(imaginary, w.getImaginary()) == 0;
+	}
+
+	/**
+	 * Returns a hash code consistent with {@link #equals(Object)}.
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * Double.hashCode(real) + Double.hashCode(imaginary);
+	}
+
 	public boolean isReal() {
 		return imaginary == 0;
 	}
 
 	public boolean isNaN() {
-		return equals(NaN);
+		return isEqualTo(NaN);
 	}
 
 	public boolean isInfinite() {
-		return equals(POSITIVE_INFINITY) || equals(NEGATIVE_INFINITY);
+		return isEqualTo(POSITIVE_INFINITY) || isEqualTo(NEGATIVE_INFINITY);
 	}
 
 	/* Complex number as boolean */
@@ -328,7 +436,7 @@ public class ComplexNumber {
 	}
 
 	public boolean booleanValue() {
-		return equals(ONE);
+		return isEqualTo(ONE);
 	}
 
 	/* Compare complex numbers */
@@ -0,0 +1,243 @@
+package plotter.expressions;
+
+/**
+ * Primitive complex arithmetic. The kernels take the real and imaginary parts
+ * of their operands as <code>double</code> values and write the result into
+ * the slot <code>out</code> of two arrays of real and imaginary parts, e.g. an
+ * entry of an evaluation stack or a row of a column. Compound functions use
+ * the output slot for their intermediate results, so no kernel allocates any
+ * objects.
+ *
+ * The kernels compute exactly the same values as the methods of
+ * {@link ComplexNumber}, which are implemented on top of them.
+ */
+public class ComplexUtil {
+
+	private ComplexUtil() {
+		// No instantiation
+	}
+
+	/* Add, subtract, multiply and divide */
+
+	public static void add(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		re[out] = a + c;
+		im[out] = b + d;
+	}
+
+	public static void subtract(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		re[out] = a - c;
+		im[out] = b - d;
+	}
+
+	public static void multiply(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		re[out] = a * c - b * d;
+		im[out] = a * d + b * c;
+	}
+
+	public static void divide(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		double den = Math.pow(Math.sqrt(c * c + d * d), 2);
+		re[out] = (a * c + b * d) / den;
+		im[out] = (b * c - a * d) / den;
+	}
+
+	public static void remainder(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		divide(a, b, c, d, re, im, out);
+		multiply(Math.round(re[out]), Math.round(im[out]), c, d, re, im, out);
+		subtract(a, b, re[out], im[out], re, im, out);
+	}
+
+	/* Power, exponential and logarithms */
+
+	public static void power(double a, double b, double c, double d, double[] re, double[] im, int out) {
+		ln(a, b, re, im, out);
+		multiply(re[out], im[out], c, d, re, im, out);
+		exp(re[out], im[out], re, im, out);
+	}
+
+	public static void exp(double a, double b, double[] re, double[] im, int out) {
+		double exp = Math.exp(a);
+		re[out] = exp * Math.cos(b);
+		im[out] = exp * Math.sin(b);
+	}
+
+	public static void ln(double a, double b, double[] re, double[] im, int out) {
+		re[out] = Math.log(Math.sqrt(a * a + b * b));
+		im[out] = Math.atan2(b, a);
+	}
+
+	/**
+	 * Computes the logarithm with a custom base.
+	 *
+	 * @param a
+	 *            The real part of the operand.
+	 * @param b
+	 *            The imaginary part of the operand.
+	 * @param base
+	 *            The base of the logarithm.
+	 * @param re
+	 *            Receives the real part of the result.
+	 * @param im
+	 *            Receives the imaginary part of the result.
+	 * @param out
+	 *            The slot of the result.
+	 */
+	public static void log(double a, double b, double base, double[] re, double[] im, int out) {
+		ln(a, b, re, im, out);
+		re[out] = re[out] / base;
+		im[out] = im[out] / base;
+	}
+
+	/* Absolute and square root */
+
+	public static void abs(double a, double b, double[] re, double[] im, int out) {
+		re[out] = Math.sqrt(a * a + b * b);
+		im[out] = 0;
+	}
+
+	public static void sqrt(double a, double b, double[] re, double[] im, int out) {
+		double r = Math.sqrt(Math.sqrt(a * a + b * b));
+		double theta = Math.atan2(b, a) / 2;
+		re[out] = r * Math.cos(theta);
+		im[out] = r * Math.sin(theta);
+	}
+
+	/* Sine, cosine and tangent */
+
+	public static void sin(double a, double b, double[] re, double[] im, int out) {
+		re[out] = ComplexNumber.cosh(b) * Math.sin(a);
+		im[out] = ComplexNumber.sinh(b) * Math.cos(a);
+	}
+
+	public static void cos(double a, double b, double[] re, double[] im, int out) {
+		re[out] = ComplexNumber.cosh(b) * Math.cos(a);
+		im[out] = -ComplexNumber.sinh(b) * Math.sin(a);
+	}
+
+	public static void tan(double a, double b, double[] re, double[] im, int out) {
+		sin(a, b, re, im, out);
+		double sinRe = re[out], sinIm = im[out];
+		cos(a, b, re, im, out);
+		divide(sinRe, sinIm, re[out], im[out], re, im, out);
+	}
+
+	/* Cotangent, secant and cosecant */
+
+	public static void cot(double a, double b, double[] re, double[] im, int out) {
+		tan(a, b, re, im, out);
+		divide(1, 0, re[out], im[out], re, im, out);
+	}
+
+	public static void sec(double a, double b, double[] re, double[] im, int out) {
+		cos(a, b, re, im, out);
+		divide(1, 0, re[out], im[out], re, im, out);
+	}
+
+	public static void csc(double a, double b, double[] re, double[] im, int out) {
+		sin(a, b, re, im, out);
+		divide(1, 0, re[out], im[out], re, im, out);
+	}
+
+	/* Sine, cosine and tangent hyperbolicus */
+
+	public static void sinh(double a, double b, double[] re, double[] im, int out) {
+		re[out] = ComplexNumber.sinh(a) * Math.cos(b);
+		im[out] = ComplexNumber.cosh(a) * Math.sin(b);
+	}
+
+	public static void cosh(double a, double b, double[] re, double[] im, int out) {
+		re[out] = ComplexNumber.cosh(a) * Math.cos(b);
+		im[out] = ComplexNumber.sinh(a) * Math.sin(b);
+	}
+
+	public static void tanh(double a, double b, double[] re, double[] im, int out) {
+		sinh(a, b, re, im, out);
+		double sinhRe = re[out], sinhIm = im[out];
+		cosh(a, b, re, im, out);
+		divide(sinhRe, sinhIm, re[out], im[out], re, im, out);
+	}
+
+	/* Arcsine, arccosine and arctangent */
+
+	/**
+	 * Computes <code>-i ln(sqrt(1 - z^2) + iz)</code>.
+	 *
+	 * @param a
+	 *            The real part of the operand.
+	 * @param b
+	 *            The imaginary part of the operand.
+	 * @param re
+	 *            Receives the real part of the result.
+	 * @param im
+	 *            Receives the imaginary part of the result.
+	 * @param out
+	 *            The slot of the result.
+	 */
+	public static void arcsin(double a, double b, double[] re, double[] im, int out) {
+		multiply(a, b, 0, 1, re, im, out);
+		double izRe = re[out], izIm = im[out];
+		multiply(a, b, a, b, re, im, out);
+		subtract(1, 0, re[out], im[out], re, im, out);
+		sqrt(re[out], im[out], re, im, out);
+		add(re[out], im[out], izRe, izIm, re, im, out);
+		ln(re[out], im[out], re, im, out);
+		multiply(0, 1, re[out], im[out], re, im, out);
+		multiply(re[out], im[out], -1, 0, re, im, out);
+	}
+
+	/**
+	 * Computes <code>-i ln(z + sqrt(z^2 - 1))</code>, mirrored into the right
+	 * half-plane.
+	 *
+	 * @param a
+	 *            The real part of the operand.
+	 * @param b
+	 *            The imaginary part of the operand.
+	 * @param re
+	 *            Receives the real part of the result.
+	 * @param im
+	 *            Receives the imaginary part of the result.
+	 * @param out
+	 *            The slot of the result.
+	 */
+	public static void arccos(double a, double b, double[] re, double[] im, int out) {
+		multiply(a, b, a, b, re, im, out);
+		subtract(re[out], im[out], 1, 0, re, im, out);
+		sqrt(re[out], im[out], re, im, out);
+		add(re[out], im[out], a, b, re, im, out);
+		ln(re[out], im[out], re, im, out);
+		multiply(re[out], im[out], 0, -1, re, im, out);
+
+		if (re[out] >= 0) {
+			im[out] = -im[out];
+		} else {
+			re[out] = -re[out];
+			im[out] = -im[out];
+		}
+	}
+
+	/**
+	 * Computes <code>-i ln((z - i) / (-z - i)) / 2</code>.
+	 *
+	 * @param a
+	 *            The real part of the operand.
+	 * @param b
+	 *            The imaginary part of the operand.
+	 * @param re
+	 *            Receives the real part of the result.
+	 * @param im
+	 *            Receives the imaginary part of the result.
+	 * @param out
+	 *            The slot of the result.
+	 */
+	public static void arctan(double a, double b, double[] re, double[] im, int out) {
+		subtract(-a, -b, 0, 1, re, im, out);
+		double denRe = re[out], denIm = im[out];
+		subtract(a, b, 0, 1, re, im, out);
+		divide(re[out], im[out], denRe, denIm, re, im, out);
+		ln(re[out], im[out], re, im, out);
+		multiply(0, -1, re[out], im[out], re, im, out);
+		re[out] = re[out] / 2.0;
+		im[out] = im[out] / 2.0;
+	}
+
+}
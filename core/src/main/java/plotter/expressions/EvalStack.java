@@ -0,0 +1,74 @@
+package plotter.expressions;
+
+/**
+ * Reusable workspace for evaluating a {@link Program} one sample at a time. The
+ * stack keeps the real and imaginary parts of its entries in primitive arrays
+ * sized from the maximum stack depth of the program, so evaluating a program
+ * with a stack does not allocate any objects.
+ *
+ * A stack belongs to one program and must not be shared between threads.
+ */
+public final class EvalStack {
+
+	/* The program this stack was created for */
+	final Program program;
+
+	/* The stack entries */
+	final double[] re;
+	final double[] im;
+
+	/* The temporaries of the program */
+	final double[] storedRe;
+	final double[] storedIm;
+
+	/* The values of the variables, indexed by slot */
+	final double[] variablesRe;
+	final double[] variablesIm;
+
+	/* Parameter buffers for the real implementations, indexed by count */
+	final double[][] parameters;
+
+	/* The result of the last evaluation */
+	double real;
+	double imaginary;
+
+	EvalStack(Program program, int maxParams) {
+		this.program = program;
+		this.re = new double[program.getMaxDepth()];
+		this.im = new double[program.getMaxDepth()];
+		this.storedRe = new double[program.getNumTemps()];
+		this.storedIm = new double[program.getNumTemps()];
+		this.variablesRe = new double[program.getNumVariables()];
+		this.variablesIm = new double[program.getNumVariables()];
+		this.parameters = new double[maxParams + 1][];
+
+		for (int i = 0; i <= maxParams; i++) {
+			parameters[i] = new double[i];
+		}
+	}
+
+	/* Getters */
+
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * Returns the real part of the result of the last evaluation.
+	 *
+	 * @return The real part.
+	 */
+	public double getReal() {
+		return real;
+	}
+
+	/**
+	 * Returns the imaginary part of the result of the last evaluation.
+	 *
+	 * @return The imaginary part.
+	 */
+	public double getImaginary() {
+		return imaginary;
+	}
+
+}
@@ -0,0 +1,671 @@
+/*
+ * Copyright 2012 Udo Klimaschewski
+ *
+ * http://UdoJava.com/
+ * http://about.me/udo.klimaschewski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package plotter.expressions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import plotter.expressions.OperatorUtil.Operator;
+import plotter.metrics.Metrics;
+
+public class Expression {
+
+	/**
+	 * The original infix expression.
+	 */
+	private String expression = null;
+
+	/**
+	 * The name of the argument the expression is plotted over.
+	 */
+	private static final String ARGUMENT = "x";
+
+	/**
+	 * The cached RPN representation of the expression.
+	 */
+	private List<Token> rpn = null;
+
+	/**
+	 * The cached compiled program of the expression and the bound values of its
+	 * variables. Setting a variable replaces the whole binding, so concurrent
+	 * evaluations always see a consistent program and values.
+	 */
+	private volatile Binding binding = null;
+
+	/**
+	 * The stacks used by {@link #eval(double)}, one per thread.
+	 */
+	private final ThreadLocal<EvalStack> stacks = new ThreadLocal<EvalStack>();
+
+	/**
+	 * All defined constants with name and value. Constants are folded into the
+	 * compiled program.
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<String, ComplexNumber> constants = new HashMap<String, ComplexNumber>() {
+		{
+			put("PI", ComplexNumber.PI);
+		}
+	};
+
+	/**
+	 * All defined variables with name and value. Variables stay symbolic in the
+	 * compiled program and are bound when the expression is evaluated.
+	 */
+	@SuppressWarnings("serial")
+	private Map<String, ComplexNumber> variables = new HashMap<String, ComplexNumber>() {
+		{
+			put(ARGUMENT, ComplexNumber.ZERO);
+		}
+	};
+
+	/**
+	 * The expression evaluators exception class.
+	 */
+	@SuppressWarnings("serial")
+	public static class ExpressionException extends RuntimeException {
+
+		public ExpressionException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Immutable binding of the values of all variables to the slots of a
+	 * compiled program.
+	 */
+	private static final class Binding {
+
+		private final Program program;
+
+		/* The values of the variables, indexed by slot */
+		private final double[] real;
+		private final double[] imaginary;
+
+		/* The slot of the argument x or -1, if unused */
+		private final int argumentSlot;
+
+		/* Shared columns of the variables for batches, see #columns(int) */
+		private volatile Columns columns = null;
+
+		Binding(Program program, Map<String, ComplexNumber> variables) {
+			int size = program.getNumVariables();
+			this.program = program;
+			this.real = new double[size];
+			this.imaginary = new double[size];
+
+			for (int i = 0; i < size; i++) {
+				ComplexNumber w = variables.get(program.getVariable(i));
+				real[i] = w.getReal();
+				imaginary[i] = w.getImaginary();
+			}
+
+			this.argumentSlot = program.getSlot(ARGUMENT);
+		}
+
+		/**
+		 * Copies the values of the variables to the variables of a stack and sets
+		 * the argument <code>x</code>.
+		 */
+		void bind(EvalStack stack, double value) {
+			if (stack.program != program) {
+				throw new IllegalArgumentException("Stack of a different program");
+			}
+
+			System.arraycopy(real, 0, stack.variablesRe, 0, real.length);
+			System.arraycopy(imaginary, 0, stack.variablesIm, 0, imaginary.length);
+
+			if (argumentSlot >= 0) {
+				stack.variablesRe[argumentSlot] = value;
+				stack.variablesIm[argumentSlot] = 0;
+			}
+		}
+
+		/**
+		 * Returns the columns of the variables for batches of at least
+		 * <code>length</code> rows. The columns are built once for the longest
+		 * batch so far and never written afterwards, so all batches and threads
+		 * share them.
+		 */
+		Columns columns(int length) {
+			Columns c = columns;
+
+			if (c == null || c.length < length) {
+				c = new Columns(this, length);
+				columns = c;
+			}
+
+			return c;
+		}
+	}
+
+	/**
+	 * Columns of the variables of a binding. Each column of a variable other than
+	 * the argument holds its value. The imaginary column of the argument holds
+	 * zeros, its real column is left <code>null</code> for the values of the
+	 * batch.
+	 */
+	private static final class Columns {
+
+		private final int length;
+		private final double[][] real;
+		private final double[][] imaginary;
+
+		Columns(Binding b, int length) {
+			this.length = length;
+			this.real = new double[b.real.length][];
+			this.imaginary = new double[b.real.length][];
+
+			for (int i = 0; i < real.length; i++) {
+				if (i == b.argumentSlot) {
+					imaginary[i] = new double[length];
+				} else {
+					real[i] = new double[length];
+					imaginary[i] = new double[length];
+					Arrays.fill(real[i], b.real[i]);
+					Arrays.fill(imaginary[i], b.imaginary[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a new expression instance from an expression string.
+	 *
+	 * @param expression
+	 *            The expression. E.g. <code>"2.4*sin(3)/(2-4)"</code> or
+	 *            <code>"sin(y)>0 & max(z, 3)>3"</code>
+	 */
+	public Expression(String expression) {
+		this.expression = expression;
+	}
+
+	/**
+	 * Implementation of the <i>Shunting Yard</i> algorithm to transform an infix
+	 * expression to a RPN expression.
+	 *
+	 * @param expression
+	 *            The input expression in infix.
+	 * @return A RPN representation of the expression, with each token as a list
+	 *         member.
+	 */
+	private List<Token> shuntingYard(String expression) {
+		List<Token> outputQueue = new ArrayList<Token>();
+		ArrayDeque<Token> stack = new ArrayDeque<Token>();
+
+		Lexer lexer = new Lexer(expression);
+
+		Token lastFunction = null;
+		while (lexer.hasNext()) {
+			Token token = lexer.next();
+
+			switch (token.type) {
+			case Token.NUMBER:
+				outputQueue.add(token);
+				break;
+			case Token.IDENTIFIER:
+				if (isSymbol(token)) {
+					outputQueue.add(token);
+				} else {
+					stack.push(token);
+					lastFunction = token.function != null ? token : lastFunction;
+				}
+				break;
+			case Token.COMMA:
+				while (!stack.isEmpty() && stack.peek().type != Token.OPEN) {
+					outputQueue.add(stack.pop());
+				}
+
+				if (stack.isEmpty()) {
+					throw new ExpressionException("Parse error for function '" + lastFunction + "'");
+				}
+				break;
+			case Token.OPERATOR:
+				Operator o1 = token.operator;
+
+				while (!stack.isEmpty() && stack.peek().type == Token.OPERATOR) {
+					Operator o2 = stack.peek().operator;
+
+					if ((o1.isLeftAssoc() && o1.getPrecedence() <= o2.getPrecedence())
+							|| (o1.getPrecedence() < o2.getPrecedence())) {
+						outputQueue.add(stack.pop());
+					} else {
+						break;
+					}
+				}
+
+				stack.push(token);
+				break;
+			case Token.OPEN:
+				stack.push(token);
+				break;
+			case Token.CLOSE:
+				while (!stack.isEmpty() && stack.peek().type != Token.OPEN) {
+					outputQueue.add(stack.pop());
+				}
+
+				if (stack.isEmpty()) {
+					throw new RuntimeException("Mismatched parentheses");
+				}
+
+				stack.pop();
+				if (!stack.isEmpty() && stack.peek().type == Token.IDENTIFIER && stack.peek().function != null) {
+					outputQueue.add(stack.pop());
+				}
+				break;
+			}
+		}
+		while (!stack.isEmpty()) {
+			Token element = stack.pop();
+
+			if (element.type == Token.OPEN || element.type == Token.CLOSE) {
+				throw new RuntimeException("Mismatched parentheses");
+			}
+
+			if (element.type != Token.OPERATOR) {
+				throw new RuntimeException("Unknown operator or function: " + element);
+			}
+
+			outputQueue.add(element);
+		}
+		return outputQueue;
+	}
+
+	/**
+	 * Is the token the name of a variable or constant?
+	 *
+	 * @param token
+	 *            The token.
+	 * @return <code>true</code>, if the token names a variable or constant.
+	 */
+	private boolean isSymbol(Token token) {
+		return token.type == Token.IDENTIFIER
+				&& (variables.containsKey(token.text) || constants.containsKey(token.text));
+	}
+
+	/**
+	 * Compiles a RPN expression into a {@link Program}. Numbers, operators and
+	 * functions were already resolved by the {@link Lexer}, constants are looked
+	 * up and variables are assigned to slots.
+	 *
+	 * @param rpn
+	 *            The RPN representation of the expression.
+	 * @return The compiled program.
+	 */
+	private Program compile(List<Token> rpn) {
+		Program.Builder builder = new Program.Builder();
+
+		for (Token token : rpn) {
+			boolean valid;
+
+			if (token.type == Token.OPERATOR) {
+				valid = builder.add(Program.OPERATOR, token.operator, 2);
+			} else if (token.type == Token.NUMBER) {
+				valid = builder.add(Program.CONSTANT, new ComplexNumber(token.value), 0);
+			} else if (variables.containsKey(token.text)) {
+				builder.addVariable(token.text);
+				valid = true;
+			} else if (constants.containsKey(token.text)) {
+				valid = builder.add(Program.CONSTANT, constants.get(token.text), 0);
+			} else if (token.function != null) {
+				valid = builder.add(Program.FUNCTION, token.function, token.function.getNumParams());
+			} else {
+				throw new ExpressionException("Unknown variable or function '" + token + "'");
+			}
+
+			if (!valid) {
+				throw new ExpressionException("Missing operand for '" + token + "'");
+			}
+		}
+
+		if (!builder.isComplete()) {
+			throw new ExpressionException("Empty expression");
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Evaluates the expression for a value of the argument <code>x</code>. The
+	 * value is only bound for this call, so several threads may evaluate the
+	 * same expression. Each thread evaluates on its own stack.
+	 *
+	 * @param value
+	 *            The value of <code>x</code>.
+	 * @return The result of the expression.
+	 */
+	public ComplexNumber eval(double value) {
+		Binding b = getBinding();
+		EvalStack stack = stacks.get();
+
+		if (stack == null || stack.program != b.program) {
+			stack = b.program.newStack();
+			stacks.set(stack);
+		}
+
+		b.bind(stack, value);
+		b.program.eval(stack.variablesRe, stack.variablesIm, stack);
+		return new ComplexNumber(stack.real, stack.imaginary);
+	}
+
+	/**
+	 * Creates a stack to evaluate this expression without allocations, see
+	 * {@link #eval(double, EvalStack)}.
+	 *
+	 * @return A new stack for the compiled program of this expression.
+	 */
+	public EvalStack newStack() {
+		return getProgram().newStack();
+	}
+
+	/**
+	 * Evaluates the expression for a value of the argument <code>x</code> on a
+	 * reusable stack. This is the hot path for evaluating single samples, it does
+	 * not allocate any objects. The stack holds all state of the evaluation, so
+	 * threads with their own stacks may evaluate the same expression.
+	 *
+	 * @param value
+	 *            The value of <code>x</code>.
+	 * @param stack
+	 *            A stack created by {@link #newStack()}, receives the result.
+	 */
+	public void eval(double value, EvalStack stack) {
+		Binding b = getBinding();
+		b.bind(stack, value);
+		b.program.eval(stack.variablesRe, stack.variablesIm, stack);
+	}
+
+	/**
+	 * Evaluates the expression for a batch of values of the argument
+	 * <code>x</code>. All other variables keep their current values.
+	 *
+	 * @param xs
+	 *            The values of <code>x</code>.
+	 * @param real
+	 *            Receives the real parts of the results, must be at least as long
+	 *            as <code>xs</code>.
+	 * @param imaginary
+	 *            Receives the imaginary parts of the results, must be at least as
+	 *            long as <code>xs</code>.
+	 */
+	public void eval(double[] xs, double[] real, double[] imaginary) {
+		eval(xs, real, imaginary, 0, xs.length);
+	}
+
+	/**
+	 * Evaluates the expression for the slice <code>[from, to)</code> of a batch
+	 * of values of the argument <code>x</code>. All other variables keep their
+	 * current values. Only the slice of the buffers is read and written, so
+	 * several threads may evaluate disjoint slices of the same buffers.
+	 *
+	 * @param xs
+	 *            The values of <code>x</code>.
+	 * @param real
+	 *            Receives the real parts of the results, must be at least as long
+	 *            as <code>xs</code>.
+	 * @param imaginary
+	 *            Receives the imaginary parts of the results, must be at least as
+	 *            long as <code>xs</code>.
+	 * @param from
+	 *            The first value of <code>x</code> to evaluate.
+	 * @param to
+	 *            The index after the last value of <code>x</code> to evaluate.
+	 */
+	public void eval(double[] xs, double[] real, double[] imaginary, int from, int to) {
+		Binding b = getBinding();
+		Columns c = b.columns(xs.length);
+		double[][] re = c.real;
+
+		if (b.argumentSlot >= 0) {
+			re = re.clone();
+			re[b.argumentSlot] = xs;
+		}
+
+		b.program.eval(re, c.imaginary, real, imaginary, from, to);
+	}
+
+	/**
+	 * Evaluates the expression with the current values of all variables.
+	 *
+	 * @return The result of the expression.
+	 */
+	public ComplexNumber eval() {
+		Binding b = getBinding();
+		return b.program.eval(b.real.clone(), b.imaginary.clone());
+	}
+
+	/**
+	 * Sets a variable value. Setting the value of a known variable only changes
+	 * its binding, a new variable requires the expression to be compiled again.
+	 * Evaluations running concurrently keep the values they started with.
+	 *
+	 * @param variable
+	 *            The variable name.
+	 * @param value
+	 *            The variable value.
+	 * @return The expression, allows to chain methods.
+	 */
+	public synchronized Expression setVariable(String variable, ComplexNumber value) {
+		if (variables.put(variable, value) == null) {
+			rpn = null;
+			binding = null;
+		} else if (binding != null) {
+			binding = new Binding(binding.program, variables);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Sets a variable value.
+	 *
+	 * @param variable
+	 *            The variable name.
+	 * @param value
+	 *            The variable value.
+	 * @return The expression, allows to chain methods.
+	 */
+	public Expression with(String variable, double value) {
+		return setVariable(variable, new ComplexNumber(value));
+	}
+
+	/**
+	 * Get an iterator for this expression, allows iterating over an expression
+	 * token by token.
+	 *
+	 * @return A new iterator instance for this expression.
+	 */
+	public Iterator<String> getExpressionTokenizer() {
+		final Lexer lexer = new Lexer(this.expression);
+
+		return new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return lexer.hasNext();
+			}
+
+			@Override
+			public String next() {
+				Token token = lexer.next();
+				return token == null ? null : token.text;
+			}
+
+			@Override
+			public void remove() {
+				throw new ExpressionException("remove() not supported");
+			}
+		};
+	}
+
+	/**
+	 * Cached access to the RPN notation of this expression, ensures only one
+	 * calculation of the RPN per expression instance. If no cached instance exists,
+	 * a new one will be created and put to the cache.
+	 *
+	 * Variables stay symbolic in the RPN, so the same RPN can be used for the
+	 * whole range of x coordinates.
+	 *
+	 * @return The cached RPN instance.
+	 */
+	private synchronized List<Token> getRPN() {
+		if (rpn == null) {
+			long start = System.nanoTime();
+			rpn = shuntingYard(this.expression);
+			Metrics.PARSE_NANOS.record(System.nanoTime() - start);
+		}
+
+		return rpn;
+	}
+
+	/**
+	 * Cached access to the compiled program of this expression. The program is
+	 * compiled from the RPN on first access, unless an expression with the same
+	 * RPN was compiled before. Programs are immutable and may be shared between
+	 * threads and expressions. Handing out the program counts as a use of it in
+	 * the {@link ProgramCache}.
+	 *
+	 * @return The cached program instance.
+	 */
+	public Program getProgram() {
+		Program program = getBinding().program;
+		program.lastAccess = System.nanoTime();
+		return program;
+	}
+
+	/**
+	 * Cached access to the binding of the variables. On first access, the
+	 * program is looked up in the {@link ProgramCache} or compiled.
+	 *
+	 * @return The current binding.
+	 */
+	private Binding getBinding() {
+		Binding b = binding;
+		if (b != null) {
+			return b;
+		}
+
+		synchronized (this) {
+			if (binding == null) {
+				final List<Token> rpn = getRPN();
+				binding = new Binding(ProgramCache.get(toCacheKey(rpn), () -> {
+					long start = System.nanoTime();
+					Program program = compile(rpn);
+					Metrics.COMPILE_NANOS.record(System.nanoTime() - start);
+					return program;
+				}), variables);
+			}
+
+			return binding;
+		}
+	}
+
+	/**
+	 * Creates the key of the program of a RPN in the {@link ProgramCache}.
+	 * Functions are keyed by their name and numbers by their value. Variables
+	 * are marked, since they compile to slots instead of constants.
+	 *
+	 * @param rpn
+	 *            The RPN representation of the expression.
+	 * @return The key of the program.
+	 */
+	private String toCacheKey(List<Token> rpn) {
+		StringBuilder key = new StringBuilder();
+
+		for (Token token : rpn) {
+			if (token.type == Token.NUMBER) {
+				key.append(token.value);
+			} else if (token.type != Token.IDENTIFIER) {
+				key.append(token.text);
+			} else if (variables.containsKey(token.text)) {
+				key.append('$').append(token.text);
+			} else if (constants.containsKey(token.text)) {
+				key.append(token.text);
+			} else if (token.function != null) {
+				key.append(token.function.getName());
+			} else {
+				key.append('?').append(token.text);
+			}
+
+			key.append(' ');
+		}
+
+		return key.toString();
+	}
+
+	/**
+	 * Get a string representation of the RPN (Reverse Polish Notation) for this
+	 * expression.
+	 *
+	 * @return A string with the RPN representation for this expression.
+	 */
+	public String toRPN() {
+		String result = new String();
+		for (Token token : getRPN()) {
+			result = result.isEmpty() ? result : result + " ";
+			result += token.text;
+		}
+		return result;
+	}
+
+	/**
+	 * Get a normalized representation of this expression. Whitespace,
+	 * parentheses and the case of function names do not matter, and the values
+	 * of all variables except <code>x</code> are included. Expressions with the
+	 * same normalized representation evaluate to the same values.
+	 *
+	 * @return The normalized representation.
+	 */
+	public synchronized String toNormalizedString() {
+		StringBuilder result = new StringBuilder();
+
+		for (Token token : getRPN()) {
+			result.append(token.function != null && !isSymbol(token) ? token.function.getName() : token.text)
+					.append(' ');
+		}
+
+		Binding b = getBinding();
+		for (int i = 0; i < b.program.getNumVariables(); i++) {
+			if (i != b.argumentSlot) {
+				result.append(b.program.getVariable(i)).append('=').append(b.real[i]).append(',')
+						.append(b.imaginary[i]).append(' ');
+			}
+		}
+
+		return result.toString().trim();
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+}
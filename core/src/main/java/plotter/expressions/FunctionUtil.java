@@ -0,0 +1,622 @@
+/*
+ * Copyright 2012 Udo Klimaschewski
+ *
+ * http://UdoJava.com/
+ * http://about.me/udo.klimaschewski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package plotter.expressions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FunctionUtil {
+
+	public static abstract class Function {
+
+		/**
+		 * Name of this function.
+		 */
+		private String name;
+
+		/**
+		 * Number of parameters expected for this function.
+		 */
+		private int numParams;
+
+		/**
+		 * Creates a new function with given name and parameter count.
+		 *
+		 * @param name
+		 *            The name of the function.
+		 * @param numParams
+		 *            The number of parameters for this function.
+		 */
+		public Function(String name, int numParams) {
+			this.name = name.toUpperCase();
+			this.numParams = numParams;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getNumParams() {
+			return numParams;
+		}
+
+		/**
+		 * Implementation for this function.
+		 *
+		 * @param parameters
+		 *            Parameters will be passed by the expression evaluator as a
+		 *            {@link List} of {@link ComplexNumber} values.
+		 * @return The function must return a new {@link ComplexNumber} value as a
+		 *         computing result.
+		 */
+		public abstract ComplexNumber eval(List<ComplexNumber> parameters);
+
+		/**
+		 * Stack implementation for this function, used to evaluate single samples
+		 * without allocations. The default implementation uses the real
+		 * implementation for real parameters and the kernel implementation of
+		 * functions with one parameter otherwise.
+		 *
+		 * @param re
+		 *            The real parts of the stack entries, the parameters are
+		 *            stored from entry <code>base</code> on in the order they were
+		 *            pushed. Entry <code>base</code> receives the real part of the
+		 *            result.
+		 * @param im
+		 *            The imaginary parts of the stack entries, organized like
+		 *            <code>re</code>.
+		 * @param base
+		 *            The entry of the first parameter.
+		 * @param parameters
+		 *            A buffer for the parameters of the real implementation, with
+		 *            one element per parameter.
+		 */
+		public void eval(double[] re, double[] im, int base, double[] parameters) {
+			boolean isReal = true;
+
+			for (int j = 0; j < numParams; j++) {
+				int k = base + numParams - 1 - j;
+				parameters[j] = re[k];
+				isReal &= im[k] == 0 && Double.isFinite(re[k]);
+			}
+
+			if (isReal) {
+				double d = evalReal(parameters);
+
+				if (Double.isFinite(d)) {
+					re[base] = d;
+					im[base] = 0;
+					return;
+				}
+			}
+
+			if (numParams == 1) {
+				evalComplex(re[base], im[base], re, im, base);
+				return;
+			}
+
+			List<ComplexNumber> p = new ArrayList<ComplexNumber>(numParams);
+
+			for (int j = base + numParams - 1; j >= base; j--) {
+				p.add(new ComplexNumber(re[j], im[j]));
+			}
+
+			ComplexNumber w = eval(p);
+			re[base] = w.getReal();
+			im[base] = w.getImaginary();
+		}
+
+		/**
+		 * Columnar implementation for this function, evaluates the function for a
+		 * whole column of parameters at once.
+		 *
+		 * @param re
+		 *            Columns of real parts, the parameters are stored from column
+		 *            <code>base</code> on in the order they were pushed. Column
+		 *            <code>base</code> receives the real parts of the results.
+		 * @param im
+		 *            Columns of imaginary parts, organized like <code>re</code>.
+		 * @param base
+		 *            The column of the first parameter.
+		 * @param length
+		 *            The number of rows to evaluate.
+		 */
+		public void eval(double[][] re, double[][] im, int base, int length) {
+			if (numParams == 1) {
+				for (int i = 0; i < length; i++) {
+					evalComplex(re[base][i], im[base][i], re[base], im[base], i);
+				}
+				return;
+			}
+
+			List<ComplexNumber> parameters = new ArrayList<ComplexNumber>(numParams);
+
+			for (int i = 0; i < length; i++) {
+				parameters.clear();
+
+				for (int j = base + numParams - 1; j >= base; j--) {
+					parameters.add(new ComplexNumber(re[j][i], im[j][i]));
+				}
+
+				ComplexNumber w = eval(parameters);
+				re[base][i] = w.getReal();
+				im[base][i] = w.getImaginary();
+			}
+		}
+
+		/**
+		 * Kernel implementation for functions with one parameter, used by the
+		 * stack and columnar implementations. It must compute exactly the result
+		 * of {@link #eval(List)}. The default implementation evaluates the complex
+		 * implementation, functions should override it with a kernel of
+		 * {@link ComplexUtil} if possible.
+		 *
+		 * @param a
+		 *            The real part of the parameter.
+		 * @param b
+		 *            The imaginary part of the parameter.
+		 * @param re
+		 *            Receives the real part of the result.
+		 * @param im
+		 *            Receives the imaginary part of the result.
+		 * @param out
+		 *            The slot of the result.
+		 */
+		public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+			List<ComplexNumber> p = new ArrayList<ComplexNumber>(1);
+			p.add(new ComplexNumber(a, b));
+
+			ComplexNumber w = eval(p);
+			re[out] = w.getReal();
+			im[out] = w.getImaginary();
+		}
+
+		/**
+		 * Real implementation for this function, used by the real fast path of the
+		 * evaluator. For finite parameters it must return exactly the real part of
+		 * {@link #eval(List)}, or {@link Double#NaN}, if the complex result is not
+		 * real. A result of {@link Double#NaN} makes the evaluator fall back to the
+		 * kernel or complex implementation, so the default implementation, which
+		 * always returns {@link Double#NaN}, is correct but slow. Functions should
+		 * override it with primitive arithmetic.
+		 *
+		 * @param parameters
+		 *            The parameters, in the same order as for {@link #eval(List)}.
+		 * @return The result of the function or {@link Double#NaN}.
+		 */
+		public double evalReal(double[] parameters) {
+			return Double.NaN;
+		}
+
+		/**
+		 * Columnar real implementation for this function. Rows with a result that is
+		 * not finite are marked, they have to be evaluated again with complex
+		 * arithmetic.
+		 *
+		 * @param columns
+		 *            The columns, organized like for
+		 *            {@link #eval(double[][], double[][], int, int)}. Column
+		 *            <code>base</code> receives the results.
+		 * @param base
+		 *            The column of the first parameter.
+		 * @param complex
+		 *            The rows that need complex arithmetic.
+		 * @param length
+		 *            The number of rows to evaluate.
+		 */
+		public void evalReal(double[][] columns, int base, boolean[] complex, int length) {
+			double[] parameters = new double[numParams];
+
+			for (int i = 0; i < length; i++) {
+				for (int j = 0; j < numParams; j++) {
+					parameters[j] = columns[base + numParams - 1 - j][i];
+				}
+
+				columns[base][i] = evalReal(parameters);
+				complex[i] |= !Double.isFinite(columns[base][i]);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static Map<String, Function> functions = new HashMap<String, Function>() {
+		{
+			put("NOT", (new Function("NOT", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return ComplexNumber.valueOf(parameters.get(0).compareTo(ComplexNumber.ZERO) == 0);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] == 0 ? 1 : 0;
+				}
+			}));
+
+			put("SIN", (new Function("SIN", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).sin();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.sin(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return Math.sin(parameters[0]);
+				}
+			}));
+
+			put("COS", (new Function("COS", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).cos();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.cos(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return Math.cos(parameters[0]);
+				}
+			}));
+
+			put("TAN", (new Function("TAN", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).tan();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.tan(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.quotient(Math.sin(parameters[0]), Math.cos(parameters[0]));
+				}
+			}));
+
+			put("SEC", (new Function("SEC", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).sec();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.sec(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.quotient(1, Math.cos(parameters[0]));
+				}
+			}));
+
+			put("COT", (new Function("COT", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).cot();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.cot(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					double tan = ComplexNumber.quotient(Math.sin(parameters[0]), Math.cos(parameters[0]));
+					return ComplexNumber.quotient(1, tan);
+				}
+			}));
+
+			put("CSC", (new Function("CSC", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).csc();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.csc(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.quotient(1, Math.sin(parameters[0]));
+				}
+			}));
+
+			put("SINH", (new Function("SINH", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).sinh();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.sinh(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.sinh(parameters[0]);
+				}
+			}));
+
+			put("COSH", (new Function("COSH", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).cosh();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.cosh(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.cosh(parameters[0]);
+				}
+			}));
+
+			put("TANH", (new Function("TANH", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).tanh();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.tanh(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return ComplexNumber.quotient(ComplexNumber.sinh(parameters[0]), ComplexNumber.cosh(parameters[0]));
+				}
+			}));
+
+			put("ARCSIN", (new Function("ARCSIN", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).arcsin();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.arcsin(a, b, re, im, out);
+				}
+			}));
+
+			put("ARCCOS", (new Function("ARCCOS", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).arccos();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.arccos(a, b, re, im, out);
+				}
+			}));
+
+			put("ARCTAN", (new Function("ARCTAN", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).arctan();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.arctan(a, b, re, im, out);
+				}
+			}));
+
+			put("RAD", (new Function("RAD", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).rad();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					if (b != 0) {
+						// Fails like the complex implementation
+						super.evalComplex(a, b, re, im, out);
+						return;
+					}
+
+					re[out] = Math.toRadians(a);
+					im[out] = 0;
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return Math.toRadians(parameters[0]);
+				}
+			}));
+
+			put("DEG", (new Function("DEG", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).deg();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					if (b != 0) {
+						// Fails like the complex implementation
+						super.evalComplex(a, b, re, im, out);
+						return;
+					}
+
+					re[out] = Math.toDegrees(a);
+					im[out] = 0;
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return Math.toDegrees(parameters[0]);
+				}
+			}));
+
+			put("MAX", (new Function("MAX", 2) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					ComplexNumber v1 = parameters.get(0);
+					ComplexNumber v2 = parameters.get(1);
+					return v1.compareTo(v2) > 0 ? v1 : v2;
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] > parameters[1] ? parameters[0] : parameters[1];
+				}
+			}));
+
+			put("MIN", (new Function("MIN", 2) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					ComplexNumber v1 = parameters.get(0);
+					ComplexNumber v2 = parameters.get(1);
+					return v1.compareTo(v2) < 0 ? v1 : v2;
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] < parameters[1] ? parameters[0] : parameters[1];
+				}
+			}));
+
+			put("ABS", (new Function("ABS", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).abs();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.abs(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return Math.sqrt(parameters[0] * parameters[0]);
+				}
+			}));
+
+			put("LN", (new Function("LN", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).ln();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.ln(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] > 0 ? Math.log(Math.sqrt(parameters[0] * parameters[0])) : Double.NaN;
+				}
+			}));
+
+			put("LOG2", (new Function("LOG2", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).log2();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.log(a, b, 2, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] > 0 ? Math.log(Math.sqrt(parameters[0] * parameters[0])) / 2 : Double.NaN;
+				}
+			}));
+
+			put("LOG10", (new Function("LOG10", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).log10();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.log(a, b, 10, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] > 0 ? Math.log(Math.sqrt(parameters[0] * parameters[0])) / 10 : Double.NaN;
+				}
+			}));
+
+			put("SQRT", (new Function("SQRT", 1) {
+				@Override
+				public ComplexNumber eval(List<ComplexNumber> parameters) {
+					return parameters.get(0).sqrt();
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double[] re, double[] im, int out) {
+					ComplexUtil.sqrt(a, b, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double[] parameters) {
+					return parameters[0] >= 0 ? Math.sqrt(Math.sqrt(parameters[0] * parameters[0])) : Double.NaN;
+				}
+			}));
+		}
+	};
+
+	public static boolean containsKey(String key) {
+		return functions.containsKey(key);
+	}
+
+	public static Function getFunction(String key) {
+		return functions.get(key);
+	}
+}
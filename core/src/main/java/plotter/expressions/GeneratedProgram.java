@@ -0,0 +1,13 @@
+package plotter.expressions;
+
+/**
+ * A {@link Program} compiled to JVM bytecode by the {@link BytecodeCompiler}.
+ * The arguments are the same as for the batch evaluation of a slice of rows,
+ * see {@link Program#eval(double[][], double[][], double[], double[], int, int)}.
+ */
+interface GeneratedProgram {
+
+	void eval(double[][] real, double[][] imaginary, double[] resultReal, double[] resultImaginary, int from,
+			int to);
+
+}
@@ -0,0 +1,191 @@
+package plotter.expressions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import plotter.expressions.Expression.ExpressionException;
+import plotter.expressions.OperatorUtil.Operator;
+
+/**
+ * Single pass lexer for expressions. The expression is scanned once as a
+ * <code>char[]</code> and split into typed {@link Token}s. Blank characters
+ * are skipped.
+ *
+ * A minus sign directly followed by a digit is part of a negative number, if
+ * it is the first token or follows an opening parenthesis, a comma or an
+ * operator.
+ */
+final class Lexer {
+
+	/* What character to use for decimal separators */
+	private static final char DECIMAL_SEPARATOR = '.';
+
+	/* What character to use for minus sign (negative values) */
+	private static final char MINUS_SIGN = '-';
+
+	/* Exact powers of ten for the fast path of parseNumber */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/* The input expression */
+	private final char[] input;
+
+	/* Actual position in the input */
+	private int pos = 0;
+
+	/* The previous token or null if none */
+	private Token previous = null;
+
+	/**
+	 * Creates a new lexer for an expression.
+	 *
+	 * @param expression
+	 *            The expression string.
+	 */
+	Lexer(String expression) {
+		this.input = expression.toCharArray();
+	}
+
+	/**
+	 * Splits an expression into tokens.
+	 *
+	 * @param expression
+	 *            The expression string.
+	 * @return The tokens of the expression.
+	 */
+	static List<Token> tokenize(String expression) {
+		Lexer lexer = new Lexer(expression);
+		List<Token> tokens = new ArrayList<Token>();
+
+		while (lexer.hasNext()) {
+			tokens.add(lexer.next());
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * Skips blank characters and checks wether there is another token.
+	 *
+	 * @return <code>true</code>, if there is another token.
+	 */
+	boolean hasNext() {
+		while (pos < input.length && Character.isWhitespace(input[pos])) {
+			pos++;
+		}
+
+		return pos < input.length;
+	}
+
+	/**
+	 * Reads the next token.
+	 *
+	 * @return The next token or <code>null</code>, if at the end of the input.
+	 */
+	Token next() {
+		if (!hasNext()) {
+			return previous = null;
+		}
+
+		int start = pos;
+		char ch = input[pos];
+
+		if (Character.isDigit(ch)) {
+			return previous = number(start, false);
+		} else if (ch == MINUS_SIGN && pos + 1 < input.length && Character.isDigit(input[pos + 1])
+				&& (previous == null || previous.type == Token.OPEN || previous.type == Token.COMMA
+						|| previous.type == Token.OPERATOR)) {
+			pos++;
+			return previous = number(start, true);
+		} else if (Character.isLetter(ch)) {
+			while (pos < input.length && (Character.isLetterOrDigit(input[pos]) || input[pos] == '_')) {
+				pos++;
+			}
+
+			String text = new String(input, start, pos - start);
+			return previous = new Token(Token.IDENTIFIER, text, start, 0, null,
+					FunctionUtil.getFunction(text.toUpperCase()));
+		} else if (ch == '(') {
+			pos++;
+			return previous = new Token(Token.OPEN, "(", start, 0, null, null);
+		} else if (ch == ')') {
+			pos++;
+			return previous = new Token(Token.CLOSE, ")", start, 0, null, null);
+		} else if (ch == ',') {
+			pos++;
+			return previous = new Token(Token.COMMA, ",", start, 0, null, null);
+		}
+
+		do {
+			pos++;
+		} while (pos < input.length && isOperatorChar(input[pos]) && input[pos] != MINUS_SIGN);
+
+		String text = new String(input, start, pos - start);
+		Operator operator = OperatorUtil.getOperator(text);
+
+		if (operator == null) {
+			throw new ExpressionException("Unknown operator '" + text + "' at position " + (start + 1));
+		}
+
+		return previous = new Token(Token.OPERATOR, text, start, 0, operator, null);
+	}
+
+	/**
+	 * Reads a number starting at the actual position.
+	 */
+	private Token number(int start, boolean negative) {
+		while (pos < input.length && (Character.isDigit(input[pos]) || input[pos] == DECIMAL_SEPARATOR)) {
+			pos++;
+		}
+
+		int from = negative ? start + 1 : start;
+		double value = parseNumber(from, pos);
+
+		return new Token(Token.NUMBER, new String(input, start, pos - start), start, negative ? -value : value,
+				null, null);
+	}
+
+	/**
+	 * Parses the digits and decimal separators of <code>[from, to)</code>.
+	 * Numbers whose digits fit into 53 bits and with at most 22 decimal places
+	 * are computed from their digits with a single correctly rounded division,
+	 * all other numbers are parsed by {@link Double#parseDouble(String)}.
+	 */
+	private double parseNumber(int from, int to) {
+		long mantissa = 0;
+		int scale = 0;
+		boolean isFraction = false;
+		boolean isExact = true;
+
+		for (int i = from; i < to && isExact; i++) {
+			char ch = input[i];
+
+			if (ch == DECIMAL_SEPARATOR) {
+				isExact = !isFraction;
+				isFraction = true;
+			} else if (ch >= '0' && ch <= '9') {
+				mantissa = 10 * mantissa + (ch - '0');
+				scale += isFraction ? 1 : 0;
+				isExact = mantissa < 1L << 53 && scale < POWERS_OF_TEN.length;
+			} else {
+				isExact = false;
+			}
+		}
+
+		if (isExact) {
+			return mantissa / POWERS_OF_TEN[scale];
+		}
+
+		String text = new String(input, from, to - from);
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			throw new ExpressionException("Invalid number '" + text + "' at position " + (from + 1));
+		}
+	}
+
+	private static boolean isOperatorChar(char ch) {
+		return !Character.isLetterOrDigit(ch) && !Character.isWhitespace(ch) && ch != '(' && ch != ')' && ch != ',';
+	}
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2012 Udo Klimaschewski
+ *
+ * http://UdoJava.com/
+ * http://about.me/udo.klimaschewski
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+package plotter.expressions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class OperatorUtil {
+
+	public static abstract class Operator {
+
+		/**
+		 * This operators name (pattern).
+		 */
+		private String operator;
+
+		/**
+		 * Operators precedence.
+		 */
+		private int precedence;
+
+		/**
+		 * Operator is left associative.
+		 */
+		private boolean leftAssoc;
+
+		/**
+		 * Creates a new operator.
+		 *
+		 * @param operator
+		 *            The operator name (pattern).
+		 * @param precedence
+		 *            The operators precedence.
+		 * @param leftAssoc
+		 *            <code>true</code> if the operator is left associative, else
+		 *            <code>false</code>.
+		 */
+		public Operator(String operator, int precedence, boolean leftAssoc) {
+			this.operator = operator;
+			this.precedence = precedence;
+			this.leftAssoc = leftAssoc;
+		}
+
+		public String getOperator() {
+			return operator;
+		}
+
+		public int getPrecedence() {
+			return precedence;
+		}
+
+		public boolean isLeftAssoc() {
+			return leftAssoc;
+		}
+
+		/**
+		 * Implementation for this operator.
+		 *
+		 * @param v1
+		 *            Operand 1.
+		 * @param v2
+		 *            Operand 2.
+		 * @return The result of the operation.
+		 */
+		public abstract ComplexNumber eval(ComplexNumber v1, ComplexNumber v2);
+
+		/**
+		 * Stack implementation for this operator, used to evaluate single samples
+		 * without allocations. The operands are the entries <code>i</code> and
+		 * <code>i + 1</code>, the result replaces entry <code>i</code>. The default
+		 * implementation uses the real implementation for real operands and the
+		 * kernel implementation otherwise.
+		 *
+		 * @param re
+		 *            The real parts of the stack entries.
+		 * @param im
+		 *            The imaginary parts of the stack entries.
+		 * @param i
+		 *            The entry of operand 1.
+		 */
+		public void eval(double[] re, double[] im, int i) {
+			if (im[i] == 0 && im[i + 1] == 0 && Double.isFinite(re[i]) && Double.isFinite(re[i + 1])) {
+				double d = evalReal(re[i], re[i + 1]);
+
+				if (Double.isFinite(d)) {
+					re[i] = d;
+					im[i] = 0;
+					return;
+				}
+			}
+
+			evalComplex(re[i], im[i], re[i + 1], im[i + 1], re, im, i);
+		}
+
+		/**
+		 * Columnar implementation for this operator, evaluates the operator for a
+		 * whole column of operands at once. The default implementation evaluates
+		 * the kernel implementation row by row.
+		 *
+		 * @param re1
+		 *            Real parts of operand 1, receives the real parts of the results.
+		 * @param im1
+		 *            Imaginary parts of operand 1, receives the imaginary parts of
+		 *            the results.
+		 * @param re2
+		 *            Real parts of operand 2.
+		 * @param im2
+		 *            Imaginary parts of operand 2.
+		 * @param length
+		 *            The number of rows to evaluate.
+		 */
+		public void eval(double[] re1, double[] im1, double[] re2, double[] im2, int length) {
+			for (int i = 0; i < length; i++) {
+				evalComplex(re1[i], im1[i], re2[i], im2[i], re1, im1, i);
+			}
+		}
+
+		/**
+		 * Kernel implementation for this operator, used by the stack and columnar
+		 * implementations. It must compute exactly the result of
+		 * {@link #eval(ComplexNumber, ComplexNumber)}. The default implementation
+		 * evaluates the complex implementation, operators should override it with
+		 * a kernel of {@link ComplexUtil} if possible.
+		 *
+		 * @param a
+		 *            The real part of operand 1.
+		 * @param b
+		 *            The imaginary part of operand 1.
+		 * @param c
+		 *            The real part of operand 2.
+		 * @param d
+		 *            The imaginary part of operand 2.
+		 * @param re
+		 *            Receives the real part of the result.
+		 * @param im
+		 *            Receives the imaginary part of the result.
+		 * @param out
+		 *            The slot of the result.
+		 */
+		public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+			ComplexNumber w = eval(new ComplexNumber(a, b), new ComplexNumber(c, d));
+			re[out] = w.getReal();
+			im[out] = w.getImaginary();
+		}
+
+		/**
+		 * Real implementation for this operator, used by the real fast path of the
+		 * evaluator. For finite operands it must return exactly the real part of
+		 * {@link #eval(ComplexNumber, ComplexNumber)}, or {@link Double#NaN}, if the
+		 * complex result is not real. The default implementation evaluates the
+		 * complex implementation.
+		 *
+		 * @param v1
+		 *            Operand 1.
+		 * @param v2
+		 *            Operand 2.
+		 * @return The result of the operation or {@link Double#NaN}.
+		 */
+		public double evalReal(double v1, double v2) {
+			ComplexNumber w = eval(new ComplexNumber(v1), new ComplexNumber(v2));
+			return w.isReal() ? w.getReal() : Double.NaN;
+		}
+
+		/**
+		 * Columnar real implementation for this operator. Rows with a result that is
+		 * not finite are marked, they have to be evaluated again with complex
+		 * arithmetic.
+		 *
+		 * @param v1
+		 *            Operand 1, receives the results.
+		 * @param v2
+		 *            Operand 2.
+		 * @param complex
+		 *            The rows that need complex arithmetic.
+		 * @param length
+		 *            The number of rows to evaluate.
+		 */
+		public void evalReal(double[] v1, double[] v2, boolean[] complex, int length) {
+			for (int i = 0; i < length; i++) {
+				v1[i] = evalReal(v1[i], v2[i]);
+				complex[i] |= !Double.isFinite(v1[i]);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final Map<String, Operator> operators = new HashMap<String, Operator>() {
+		{
+			put("+", (new Operator("+", 20, true) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.add(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.add(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public void eval(double[] re, double[] im, int i) {
+					re[i] = re[i] + re[i + 1];
+					im[i] = im[i] + im[i + 1];
+				}
+
+				@Override
+				public void eval(double[] re1, double[] im1, double[] re2, double[] im2, int length) {
+					for (int i = 0; i < length; i++) {
+						re1[i] = re1[i] + re2[i];
+						im1[i] = im1[i] + im2[i];
+					}
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 + v2;
+				}
+
+				@Override
+				public void evalReal(double[] v1, double[] v2, boolean[] complex, int length) {
+					for (int i = 0; i < length; i++) {
+						v1[i] = v1[i] + v2[i];
+						complex[i] |= !Double.isFinite(v1[i]);
+					}
+				}
+			}));
+
+			put("-", (new Operator("-", 20, true) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.subtract(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.subtract(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public void eval(double[] re, double[] im, int i) {
+					re[i] = re[i] - re[i + 1];
+					im[i] = im[i] - im[i + 1];
+				}
+
+				@Override
+				public void eval(double[] re1, double[] im1, double[] re2, double[] im2, int length) {
+					for (int i = 0; i < length; i++) {
+						re1[i] = re1[i] - re2[i];
+						im1[i] = im1[i] - im2[i];
+					}
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 - v2;
+				}
+
+				@Override
+				public void evalReal(double[] v1, double[] v2, boolean[] complex, int length) {
+					for (int i = 0; i < length; i++) {
+						v1[i] = v1[i] - v2[i];
+						complex[i] |= !Double.isFinite(v1[i]);
+					}
+				}
+			}));
+
+			put("*", (new Operator("*", 30, true) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.multiply(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.multiply(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public void eval(double[] re, double[] im, int i) {
+					ComplexUtil.multiply(re[i], im[i], re[i + 1], im[i + 1], re, im, i);
+				}
+
+				@Override
+				public void eval(double[] re1, double[] im1, double[] re2, double[] im2, int length) {
+					for (int i = 0; i < length; i++) {
+						ComplexUtil.multiply(re1[i], im1[i], re2[i], im2[i], re1, im1, i);
+					}
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 * v2;
+				}
+
+				@Override
+				public void evalReal(double[] v1, double[] v2, boolean[] complex, int length) {
+					for (int i = 0; i < length; i++) {
+						v1[i] = v1[i] * v2[i];
+						complex[i] |= !Double.isFinite(v1[i]);
+					}
+				}
+			}));
+
+			put("/", (new Operator("/", 30, true) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.divide(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.divide(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public void eval(double[] re, double[] im, int i) {
+					ComplexUtil.divide(re[i], im[i], re[i + 1], im[i + 1], re, im, i);
+				}
+
+				@Override
+				public void eval(double[] re1, double[] im1, double[] re2, double[] im2, int length) {
+					for (int i = 0; i < length; i++) {
+						ComplexUtil.divide(re1[i], im1[i], re2[i], im2[i], re1, im1, i);
+					}
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return ComplexNumber.quotient(v1, v2);
+				}
+
+				@Override
+				public void evalReal(double[] v1, double[] v2, boolean[] complex, int length) {
+					for (int i = 0; i < length; i++) {
+						v1[i] = ComplexNumber.quotient(v1[i], v2[i]);
+						complex[i] |= !Double.isFinite(v1[i]);
+					}
+				}
+			}));
+
+			put("%", (new Operator("%", 30, true) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.remainder(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.remainder(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 - Math.round(ComplexNumber.quotient(v1, v2)) * v2;
+				}
+			}));
+
+			put("^", (new Operator("^", 40, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return v1.power(v2);
+				}
+
+				@Override
+				public void evalComplex(double a, double b, double c, double d, double[] re, double[] im, int out) {
+					ComplexUtil.power(a, b, c, d, re, im, out);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					double ln = Math.log(Math.sqrt(v1 * v1));
+					return v1 > 0 && Double.isFinite(ln) ? Math.exp(ln * v2) : Double.NaN;
+				}
+			}));
+
+			put("&&", (new Operator("&&", 4, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					boolean b1 = !v1.isEqualTo(ComplexNumber.ZERO);
+					boolean b2 = !v2.isEqualTo(ComplexNumber.ZERO);
+					return ComplexNumber.valueOf(b1 && b2);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 != 0 && v2 != 0 ? 1 : 0;
+				}
+			}));
+
+			put("||", (new Operator("||", 2, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					boolean b1 = !v1.isEqualTo(ComplexNumber.ZERO);
+					boolean b2 = !v2.isEqualTo(ComplexNumber.ZERO);
+					return ComplexNumber.valueOf(b1 || b2);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 != 0 || v2 != 0 ? 1 : 0;
+				}
+			}));
+
+			put(">", (new Operator(">", 10, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(v1.compareTo(v2) == 1);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 > v2 ? 1 : 0;
+				}
+			}));
+
+			put(">=", (new Operator(">=", 10, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(v1.compareTo(v2) >= 0);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 >= v2 ? 1 : 0;
+				}
+			}));
+
+			put("<", (new Operator("<", 10, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(v1.compareTo(v2) == -1);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 < v2 ? 1 : 0;
+				}
+			}));
+
+			put("<=", (new Operator("<=", 10, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(v1.compareTo(v2) <= 0);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 <= v2 ? 1 : 0;
+				}
+			}));
+
+			put("=", (new Operator("=", 7, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(v1.isEqualTo(v2));
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 == v2 ? 1 : 0;
+				}
+			}));
+
+			put("==", (new Operator("==", 7, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return operators.get("=").eval(v1, v2);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return operators.get("=").evalReal(v1, v2);
+				}
+			}));
+
+			put("!=", (new Operator("!=", 7, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return ComplexNumber.valueOf(!v1.isEqualTo(v2));
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return v1 != v2 ? 1 : 0;
+				}
+			}));
+
+			put("<>", (new Operator("<>", 7, false) {
+				@Override
+				public ComplexNumber eval(ComplexNumber v1, ComplexNumber v2) {
+					return operators.get("!=").eval(v1, v2);
+				}
+
+				@Override
+				public double evalReal(double v1, double v2) {
+					return operators.get("!=").evalReal(v1, v2);
+				}
+			}));
+		}
+	};
+
+	public static boolean containsKey(String key) {
+		return operators.containsKey(key);
+	}
+
+	public static Operator getOperator(String key) {
+		return operators.get(key);
+	}
+
+}
@@ -0,0 +1,271 @@
+package plotter.expressions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import plotter.expressions.FunctionUtil.Function;
+import plotter.expressions.OperatorUtil.Operator;
+
+/**
+ * Optimization pass of the compiler. The instructions of a program are turned
+ * into a tree, which is then simplified in three steps:
+ *
+ * <ul>
+ * <li>Subtrees without variables are folded into constants, using the same
+ * {@link Operator} and {@link Function} implementations as the evaluator.</li>
+ * <li>Powers with a small integer exponent are rewritten into products, e.g.
+ * <code>x^2</code> becomes <code>x*x</code>.</li>
+ * <li>Repeated subexpressions are evaluated only once. The first occurrence
+ * stores its value in a temporary, all others load the temporary.</li>
+ * </ul>
+ */
+class Optimizer {
+
+	/**
+	 * A node of the expression tree. Equal subtrees share the same node.
+	 */
+	private static class Node {
+
+		private final int code;
+		private final Object operand;
+		private final Node[] children;
+
+		/* Number of parents referencing this node */
+		private int uses = 0;
+
+		/* The temporary holding the value or -1, if not emitted yet */
+		private int temp = -1;
+
+		Node(int code, Object operand, Node... children) {
+			this.code = code;
+			this.operand = operand;
+			this.children = children;
+		}
+
+		boolean isConstant() {
+			return code == Program.CONSTANT;
+		}
+
+		boolean isLeaf() {
+			return children.length == 0;
+		}
+	}
+
+	/* Unique nodes by structure */
+	private Map<String, Node> nodes = new HashMap<String, Node>();
+	private Map<Node, Integer> ids = new HashMap<Node, Integer>();
+
+	/* The optimized instructions */
+	private List<Integer> codes = new ArrayList<Integer>();
+	private List<Object> operands = new ArrayList<Object>();
+	private int temps = 0;
+
+	/* Instructions saved by the optimization, negative if the program grew */
+	private int eliminated = 0;
+
+	/**
+	 * Optimizes the instructions of a program.
+	 *
+	 * @param codes
+	 *            The instruction codes.
+	 * @param operands
+	 *            The constants, operators, functions and slots of the
+	 *            instructions.
+	 */
+	Optimizer(List<Integer> codes, List<Object> operands) {
+		List<Node> stack = new ArrayList<Node>();
+
+		for (int i = 0; i < codes.size(); i++) {
+			int pops = pops(codes.get(i), operands.get(i));
+			Node[] children = new Node[pops];
+
+			for (int j = pops - 1; j >= 0; j--) {
+				children[j] = stack.remove(stack.size() - 1);
+			}
+
+			stack.add(node(codes.get(i), operands.get(i), children));
+		}
+
+		for (Node node : stack) {
+			count(node);
+		}
+
+		for (Node node : stack) {
+			emit(node);
+		}
+
+		eliminated = codes.size() - this.codes.size();
+	}
+
+	/* Getters */
+
+	List<Integer> getCodes() {
+		return codes;
+	}
+
+	List<Object> getOperands() {
+		return operands;
+	}
+
+	int getTemps() {
+		return temps;
+	}
+
+	int getEliminated() {
+		return eliminated;
+	}
+
+	static int pops(int code, Object operand) {
+		switch (code) {
+		case Program.OPERATOR:
+			return 2;
+		case Program.FUNCTION:
+			return ((Function) operand).getNumParams();
+		default:
+			return 0;
+		}
+	}
+
+	/* Tree construction */
+
+	/**
+	 * Creates a node, folding constants and rewriting powers on the way.
+	 */
+	private Node node(int code, Object operand, Node... children) {
+		Node folded = fold(code, operand, children);
+		if (folded != null) {
+			return folded;
+		}
+
+		if (code == Program.OPERATOR && "^".equals(((Operator) operand).getOperator())) {
+			Node power = power(children[0], children[1]);
+			if (power != null) {
+				return power;
+			}
+		}
+
+		return unique(new Node(code, operand, children));
+	}
+
+	private Node fold(int code, Object operand, Node[] children) {
+		if (code != Program.OPERATOR && code != Program.FUNCTION) {
+			return null;
+		}
+
+		for (Node child : children) {
+			if (!child.isConstant()) {
+				return null;
+			}
+		}
+
+		try {
+			ComplexNumber w;
+
+			if (code == Program.OPERATOR) {
+				w = ((Operator) operand).eval((ComplexNumber) children[0].operand, (ComplexNumber) children[1].operand);
+			} else {
+				List<ComplexNumber> parameters = new ArrayList<ComplexNumber>(children.length);
+
+				for (int i = children.length - 1; i >= 0; i--) {
+					parameters.add((ComplexNumber) children[i].operand);
+				}
+
+				w = ((Function) operand).eval(parameters);
+			}
+
+			return unique(new Node(Program.CONSTANT, w));
+		} catch (RuntimeException e) {
+			// Leave it to the evaluator to fail
+			return null;
+		}
+	}
+
+	/**
+	 * Rewrites <code>x^2</code> and <code>x^3</code> into products.
+	 */
+	private Node power(Node base, Node exponent) {
+		if (!exponent.isConstant()) {
+			return null;
+		}
+
+		ComplexNumber w = (ComplexNumber) exponent.operand;
+		Operator multiply = OperatorUtil.getOperator("*");
+
+		if (w.isEqualTo(new ComplexNumber(2))) {
+			return node(Program.OPERATOR, multiply, base, base);
+		} else if (w.isEqualTo(new ComplexNumber(3))) {
+			return node(Program.OPERATOR, multiply, node(Program.OPERATOR, multiply, base, base), base);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Looks up the node with the same structure or registers a new one.
+	 */
+	private Node unique(Node node) {
+		StringBuilder key = new StringBuilder().append(node.code).append(':');
+
+		if (node.isConstant()) {
+			ComplexNumber w = (ComplexNumber) node.operand;
+			key.append(Double.doubleToRawLongBits(w.getReal())).append(',')
+					.append(Double.doubleToRawLongBits(w.getImaginary()));
+		} else if (node.code == Program.VARIABLE) {
+			key.append(node.operand);
+		} else {
+			key.append(node.code == Program.OPERATOR ? ((Operator) node.operand).getOperator()
+					: ((Function) node.operand).getName());
+
+			for (Node child : node.children) {
+				key.append(',').append(ids.get(child));
+			}
+		}
+
+		Node existing = nodes.get(key.toString());
+		if (existing != null) {
+			return existing;
+		}
+
+		nodes.put(key.toString(), node);
+		ids.put(node, ids.size());
+		return node;
+	}
+
+	/* Emission */
+
+	private void count(Node node) {
+		if (node.uses++ > 0) {
+			return;
+		}
+
+		for (Node child : node.children) {
+			count(child);
+		}
+	}
+
+	private void emit(Node node) {
+		if (node.temp >= 0) {
+			add(Program.LOAD, node.temp);
+			return;
+		}
+
+		for (Node child : node.children) {
+			emit(child);
+		}
+
+		add(node.code, node.operand);
+
+		if (node.uses > 1 && !node.isLeaf()) {
+			node.temp = temps++;
+			add(Program.STORE, node.temp);
+		}
+	}
+
+	private void add(int code, Object operand) {
+		codes.add(code);
+		operands.add(operand);
+	}
+
+}
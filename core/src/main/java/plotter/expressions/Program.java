@@ -0,0 +1,571 @@
+package plotter.expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import plotter.expressions.FunctionUtil.Function;
+import plotter.expressions.OperatorUtil.Operator;
+import plotter.metrics.Metrics;
+
+/**
+ * The compiled form of an {@link Expression}. All tokens of the RPN are resolved
+ * exactly once: numbers are parsed into {@link ComplexNumber} constants and
+ * operators and functions are looked up, so evaluating a program does no string
+ * work at all.
+ *
+ * Variables are not part of the program, they are compiled to slot indices
+ * instead. The values of the slots are passed as primitive arrays when the
+ * program is evaluated, so one program can be evaluated for any value of its
+ * variables.
+ *
+ * Before a program is built, its instructions are simplified by the
+ * {@link Optimizer}: constant subexpressions are folded and repeated
+ * subexpressions are evaluated once and kept in temporaries.
+ *
+ * A program is immutable and is built by {@link Expression} the first time it
+ * is evaluated.
+ */
+public final class Program {
+
+	/* Instruction codes */
+	static final int CONSTANT = 0;
+	static final int VARIABLE = 1;
+	static final int OPERATOR = 2;
+	static final int FUNCTION = 3;
+	static final int STORE = 4;
+	static final int LOAD = 5;
+
+	/* The instructions, slots hold the temporary for STORE and LOAD */
+	private final int[] codes;
+	private final ComplexNumber[] constants;
+	private final Operator[] operators;
+	private final Function[] functions;
+	private final int[] slots;
+
+	/* The variable names, indexed by slot */
+	private final String[] variables;
+
+	/* Highest number of values on the stack during evaluation */
+	private final int maxDepth;
+
+	/* Number of temporaries and of instructions removed by the optimizer */
+	private final int temps;
+	private final int eliminated;
+
+	/* Wether all constants are finite real numbers */
+	private final boolean isReal;
+
+	/* State of the bytecode backend, see BytecodeCompiler */
+	volatile GeneratedProgram generated = null;
+	volatile boolean unsupported = false;
+	final AtomicInteger batches = new AtomicInteger();
+	final Object compileLock = new Object();
+
+	/* Time of the last use, see ProgramCache */
+	volatile long lastAccess;
+
+	Program(int[] codes, ComplexNumber[] constants, Operator[] operators, Function[] functions, int[] slots,
+			String[] variables, int maxDepth, int temps, int eliminated) {
+		this.codes = codes;
+		this.constants = constants;
+		this.operators = operators;
+		this.functions = functions;
+		this.slots = slots;
+		this.variables = variables;
+		this.maxDepth = maxDepth;
+		this.temps = temps;
+		this.eliminated = eliminated;
+		this.isReal = isReal(constants);
+	}
+
+	private static boolean isReal(ComplexNumber[] constants) {
+		for (ComplexNumber w : constants) {
+			if (w != null && (!w.isReal() || !Double.isFinite(w.getReal()))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/* Getters */
+
+	public int size() {
+		return codes.length;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public int getNumTemps() {
+		return temps;
+	}
+
+	/**
+	 * Returns the number of instructions the optimizer saved, i.e. the size of
+	 * the program before the optimization minus its size after. Folding
+	 * constants and reusing repeated subexpressions save instructions, while
+	 * storing reused values and rewriting powers into products add some, so
+	 * the number is negative if the program grew.
+	 *
+	 * @return The number of eliminated instructions.
+	 */
+	public int getEliminated() {
+		return eliminated;
+	}
+
+	public int getNumVariables() {
+		return variables.length;
+	}
+
+	public String getVariable(int slot) {
+		return variables[slot];
+	}
+
+	/* Access to the instructions */
+
+	int codeAt(int i) {
+		return codes[i];
+	}
+
+	ComplexNumber constantAt(int i) {
+		return constants[i];
+	}
+
+	Operator operatorAt(int i) {
+		return operators[i];
+	}
+
+	Function functionAt(int i) {
+		return functions[i];
+	}
+
+	int slotAt(int i) {
+		return slots[i];
+	}
+
+	/**
+	 * Looks up the slot of a variable.
+	 *
+	 * @param name
+	 *            The variable name.
+	 * @return The slot index or <code>-1</code>, if the program does not use the
+	 *         variable.
+	 */
+	public int getSlot(String name) {
+		for (int i = 0; i < variables.length; i++) {
+			if (variables[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Creates a stack to evaluate this program one sample at a time without
+	 * allocations.
+	 *
+	 * @return A new stack.
+	 */
+	public EvalStack newStack() {
+		int maxParams = 0;
+
+		for (Function f : functions) {
+			if (f != null) {
+				maxParams = Math.max(maxParams, f.getNumParams());
+			}
+		}
+
+		return new EvalStack(this, maxParams);
+	}
+
+	/**
+	 * Evaluates the program.
+	 *
+	 * @param real
+	 *            The real parts of the variables, indexed by slot.
+	 * @param imaginary
+	 *            The imaginary parts of the variables, indexed by slot.
+	 * @return The result of the program.
+	 */
+	public ComplexNumber eval(double[] real, double[] imaginary) {
+		EvalStack stack = newStack();
+		eval(real, imaginary, stack);
+		return new ComplexNumber(stack.getReal(), stack.getImaginary());
+	}
+
+	/**
+	 * Evaluates the program on a reusable stack. Apart from operators and
+	 * functions without a primitive implementation, this does not allocate any
+	 * objects.
+	 *
+	 * @param real
+	 *            The real parts of the variables, indexed by slot.
+	 * @param imaginary
+	 *            The imaginary parts of the variables, indexed by slot.
+	 * @param stack
+	 *            A stack created by {@link #newStack()} of this program, receives
+	 *            the result.
+	 */
+	public void eval(double[] real, double[] imaginary, EvalStack stack) {
+		if (stack.program != this) {
+			throw new IllegalArgumentException("Stack of a different program");
+		}
+
+		double[] re = stack.re;
+		double[] im = stack.im;
+		int top = 0;
+
+		for (int i = 0; i < codes.length; i++) {
+			switch (codes[i]) {
+			case CONSTANT:
+				re[top] = constants[i].getReal();
+				im[top] = constants[i].getImaginary();
+				top++;
+				break;
+			case VARIABLE:
+				re[top] = real[slots[i]];
+				im[top] = imaginary[slots[i]];
+				top++;
+				break;
+			case OPERATOR:
+				top--;
+				operators[i].eval(re, im, top - 1);
+				break;
+			case FUNCTION:
+				top -= functions[i].getNumParams();
+				functions[i].eval(re, im, top, stack.parameters[functions[i].getNumParams()]);
+				top++;
+				break;
+			case STORE:
+				stack.storedRe[slots[i]] = re[top - 1];
+				stack.storedIm[slots[i]] = im[top - 1];
+				break;
+			case LOAD:
+				re[top] = stack.storedRe[slots[i]];
+				im[top] = stack.storedIm[slots[i]];
+				top++;
+				break;
+			}
+		}
+
+		stack.real = re[top - 1];
+		stack.imaginary = im[top - 1];
+	}
+
+	/**
+	 * Evaluates the program for a whole batch of variable values at once, see
+	 * {@link #eval(double[][], double[][], double[], double[], int, int)}.
+	 *
+	 * @param real
+	 *            The columns of the real parts of the variables, indexed by slot.
+	 * @param imaginary
+	 *            The columns of the imaginary parts of the variables, indexed by
+	 *            slot.
+	 * @param resultReal
+	 *            Receives the real parts of the results.
+	 * @param resultImaginary
+	 *            Receives the imaginary parts of the results.
+	 * @param length
+	 *            The number of rows to evaluate.
+	 */
+	public void eval(double[][] real, double[][] imaginary, double[] resultReal, double[] resultImaginary,
+			int length) {
+		eval(real, imaginary, resultReal, resultImaginary, 0, length);
+	}
+
+	/**
+	 * Evaluates the program for the rows <code>[from, to)</code> of a batch of
+	 * variable values. The program is run column by column: each instruction is
+	 * applied to all rows before the next instruction starts. Only the rows of
+	 * the slice are read and written, so several threads may evaluate disjoint
+	 * slices of the same buffers.
+	 *
+	 * Programs that are evaluated repeatedly are compiled to bytecode by the
+	 * {@link BytecodeCompiler}, if it is enabled and supports the program.
+	 * Otherwise the program is interpreted, with real arithmetic where possible.
+	 *
+	 * @param real
+	 *            The columns of the real parts of the variables, indexed by slot.
+	 * @param imaginary
+	 *            The columns of the imaginary parts of the variables, indexed by
+	 *            slot.
+	 * @param resultReal
+	 *            Receives the real parts of the results.
+	 * @param resultImaginary
+	 *            Receives the imaginary parts of the results.
+	 * @param from
+	 *            The first row to evaluate.
+	 * @param to
+	 *            The row after the last row to evaluate.
+	 */
+	public void eval(double[][] real, double[][] imaginary, double[] resultReal, double[] resultImaginary,
+			int from, int to) {
+		GeneratedProgram program = BytecodeCompiler.lookup(this);
+		int length = to - from;
+		long start = System.nanoTime();
+		lastAccess = start;
+
+		if (program != null) {
+			program.eval(real, imaginary, resultReal, resultImaginary, from, to);
+			long nanos = System.nanoTime() - start;
+			BytecodeCompiler.countGenerated(length, nanos);
+			Metrics.recordEval(length, nanos);
+			return;
+		}
+
+		if (isReal) {
+			evalReal(real, imaginary, resultReal, resultImaginary, from, to);
+		} else {
+			evalComplex(real, imaginary, resultReal, resultImaginary, from, to);
+		}
+
+		long nanos = System.nanoTime() - start;
+		BytecodeCompiler.countInterpreted(length, nanos);
+		Metrics.recordEval(length, nanos);
+	}
+
+	/**
+	 * Batch evaluation with complex arithmetic.
+	 */
+	private void evalComplex(double[][] real, double[][] imaginary, double[] resultReal, double[] resultImaginary,
+			int from, int to) {
+		int length = to - from;
+		double[][] re = new double[maxDepth][length];
+		double[][] im = new double[maxDepth][length];
+		double[][] storedRe = new double[temps][length];
+		double[][] storedIm = new double[temps][length];
+		int top = 0;
+
+		for (int i = 0; i < codes.length; i++) {
+			switch (codes[i]) {
+			case CONSTANT:
+				Arrays.fill(re[top], 0, length, constants[i].getReal());
+				Arrays.fill(im[top], 0, length, constants[i].getImaginary());
+				top++;
+				break;
+			case VARIABLE:
+				System.arraycopy(real[slots[i]], from, re[top], 0, length);
+				System.arraycopy(imaginary[slots[i]], from, im[top], 0, length);
+				top++;
+				break;
+			case OPERATOR:
+				top--;
+				operators[i].eval(re[top - 1], im[top - 1], re[top], im[top], length);
+				break;
+			case FUNCTION:
+				top -= functions[i].getNumParams();
+				functions[i].eval(re, im, top, length);
+				top++;
+				break;
+			case STORE:
+				System.arraycopy(re[top - 1], 0, storedRe[slots[i]], 0, length);
+				System.arraycopy(im[top - 1], 0, storedIm[slots[i]], 0, length);
+				break;
+			case LOAD:
+				System.arraycopy(storedRe[slots[i]], 0, re[top], 0, length);
+				System.arraycopy(storedIm[slots[i]], 0, im[top], 0, length);
+				top++;
+				break;
+			}
+		}
+
+		System.arraycopy(re[top - 1], 0, resultReal, from, length);
+		System.arraycopy(im[top - 1], 0, resultImaginary, from, length);
+	}
+
+	/**
+	 * Batch evaluation with real arithmetic. All rows are evaluated with the real
+	 * implementations of the operators and functions first. Rows with complex
+	 * variables or where an operation leaves the reals, e.g. the square root of a
+	 * negative number, are evaluated again with complex arithmetic, so the results
+	 * are the same as those of {@link #evalComplex}.
+	 */
+	private void evalReal(double[][] real, double[][] imaginary, double[] resultReal, double[] resultImaginary,
+			int from, int to) {
+		int length = to - from;
+		double[][] re = new double[maxDepth][length];
+		double[][] stored = new double[temps][length];
+		boolean[] complex = new boolean[length];
+		int top = 0;
+
+		for (int slot = 0; slot < variables.length; slot++) {
+			for (int j = 0; j < length; j++) {
+				complex[j] |= imaginary[slot][from + j] != 0 || !Double.isFinite(real[slot][from + j]);
+			}
+		}
+
+		for (int i = 0; i < codes.length; i++) {
+			switch (codes[i]) {
+			case CONSTANT:
+				Arrays.fill(re[top], 0, length, constants[i].getReal());
+				top++;
+				break;
+			case VARIABLE:
+				System.arraycopy(real[slots[i]], from, re[top], 0, length);
+				top++;
+				break;
+			case OPERATOR:
+				top--;
+				operators[i].evalReal(re[top - 1], re[top], complex, length);
+				break;
+			case FUNCTION:
+				top -= functions[i].getNumParams();
+				functions[i].evalReal(re, top, complex, length);
+				top++;
+				break;
+			case STORE:
+				System.arraycopy(re[top - 1], 0, stored[slots[i]], 0, length);
+				break;
+			case LOAD:
+				System.arraycopy(stored[slots[i]], 0, re[top], 0, length);
+				top++;
+				break;
+			}
+		}
+
+		System.arraycopy(re[top - 1], 0, resultReal, from, length);
+		Arrays.fill(resultImaginary, from, to, 0);
+
+		int count = 0;
+		for (int j = 0; j < length; j++) {
+			if (complex[j]) {
+				count++;
+			}
+		}
+
+		if (count == 0) {
+			return;
+		}
+
+		int[] rows = new int[count];
+		double[][] subReal = new double[variables.length][count];
+		double[][] subImaginary = new double[variables.length][count];
+
+		for (int j = 0, k = 0; j < length; j++) {
+			if (complex[j]) {
+				rows[k] = j;
+
+				for (int slot = 0; slot < variables.length; slot++) {
+					subReal[slot][k] = real[slot][from + j];
+					subImaginary[slot][k] = imaginary[slot][from + j];
+				}
+
+				k++;
+			}
+		}
+
+		double[] subResultReal = new double[count];
+		double[] subResultImaginary = new double[count];
+		evalComplex(subReal, subImaginary, subResultReal, subResultImaginary, 0, count);
+
+		for (int k = 0; k < count; k++) {
+			resultReal[from + rows[k]] = subResultReal[k];
+			resultImaginary[from + rows[k]] = subResultImaginary[k];
+		}
+	}
+
+	/**
+	 * Helper to collect the instructions of a program while compiling.
+	 */
+	static class Builder {
+
+		private List<Integer> codes = new ArrayList<Integer>();
+		private List<Object> operands = new ArrayList<Object>();
+		private List<String> variables = new ArrayList<String>();
+
+		private int depth = 0;
+
+		/**
+		 * Adds an instruction.
+		 *
+		 * @param code
+		 *            The instruction code.
+		 * @param operand
+		 *            The constant, operator or function of the instruction.
+		 * @param pops
+		 *            The number of values taken from the stack.
+		 * @return <code>false</code>, if there are not enough values on the stack.
+		 */
+		boolean add(int code, Object operand, int pops) {
+			if (depth < pops) {
+				return false;
+			}
+
+			depth = depth - pops + 1;
+			codes.add(code);
+			operands.add(operand);
+			return true;
+		}
+
+		/**
+		 * Adds an instruction loading a variable. Each distinct variable name is
+		 * assigned the next free slot.
+		 *
+		 * @param name
+		 *            The variable name.
+		 */
+		void addVariable(String name) {
+			if (!variables.contains(name)) {
+				variables.add(name);
+			}
+
+			add(VARIABLE, variables.indexOf(name), 0);
+		}
+
+		boolean isComplete() {
+			return depth > 0;
+		}
+
+		/**
+		 * Optimizes the collected instructions and builds the program.
+		 *
+		 * @return The program.
+		 */
+		Program build() {
+			Optimizer optimizer = new Optimizer(codes, operands);
+			List<Integer> codes = optimizer.getCodes();
+			List<Object> operands = optimizer.getOperands();
+			int size = codes.size();
+			int[] c = new int[size];
+			ComplexNumber[] constants = new ComplexNumber[size];
+			Operator[] operators = new Operator[size];
+			Function[] functions = new Function[size];
+			int[] slots = new int[size];
+			int depth = 0;
+			int maxDepth = 0;
+
+			for (int i = 0; i < size; i++) {
+				c[i] = codes.get(i);
+				depth -= Optimizer.pops(c[i], operands.get(i));
+				depth += c[i] == STORE ? 0 : 1;
+				maxDepth = Math.max(maxDepth, depth);
+
+				switch (c[i]) {
+				case CONSTANT:
+					constants[i] = (ComplexNumber) operands.get(i);
+					break;
+				case OPERATOR:
+					operators[i] = (Operator) operands.get(i);
+					break;
+				case FUNCTION:
+					functions[i] = (Function) operands.get(i);
+					break;
+				case VARIABLE:
+				case STORE:
+				case LOAD:
+					slots[i] = (Integer) operands.get(i);
+					break;
+				}
+			}
+
+			return new Program(c, constants, operators, functions, slots, variables.toArray(new String[0]),
+					maxDepth, optimizer.getTemps(), optimizer.getEliminated());
+		}
+	}
+
+}
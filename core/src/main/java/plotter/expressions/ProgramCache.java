@@ -0,0 +1,230 @@
+package plotter.expressions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import plotter.metrics.Metrics;
+
+/**
+ * Process wide cache of compiled programs. Programs are keyed by a normalized
+ * form of the RPN of their expression, see {@link Expression#getProgram()}, so
+ * expressions differing only in whitespace, redundant parentheses or the case
+ * of function names share one program. Since programs are immutable and do not
+ * contain the values of variables, expressions plotted under different axes or
+ * with different variable values share a program, too.
+ *
+ * The cache is bounded by the number of programs. Programs that have not been
+ * used for a while are evicted as well. A program is used when it is looked up,
+ * when {@link Expression#getProgram()} or {@link Expression#newStack()} hand it
+ * out and whenever it evaluates a batch, so a program that is plotted
+ * continuously never expires. Evaluating single samples on an existing stack
+ * does not count as use.
+ *
+ * Both limits are enforced by a sweep on the {@link #EVICTOR}, which a miss
+ * schedules when the cache is full or the last sweep is long enough ago. The
+ * cache may therefore exceed {@link #MAX_SIZE} until the sweep ran.
+ */
+public class ProgramCache {
+
+	/* Upper bound of the number of programs, no programs are cached if zero */
+	public static int MAX_SIZE = 1024;
+
+	/* Time after which an unused program is evicted */
+	public static long MAX_IDLE_MILLIS = 10 * 60 * 1000;
+
+	/* Runs the sweeps, one at a time */
+	public static ExecutorService EVICTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "program-cache");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/* The cached programs */
+	private static final ConcurrentHashMap<String, Program> programs = new ConcurrentHashMap<String, Program>();
+
+	/* State of the sweeps */
+	private static final AtomicBoolean isSweepPending = new AtomicBoolean();
+	private static volatile long lastSweep = System.nanoTime();
+
+	/* Counters */
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder evictions = new LongAdder();
+	private static final LongAdder expirations = new LongAdder();
+
+	static {
+		Metrics.registerCache("programCache", ProgramCache::getHits, ProgramCache::getMisses);
+		Metrics.register("programCache.size", ProgramCache::size);
+	}
+
+	private ProgramCache() {
+		// No instantiation
+	}
+
+	/**
+	 * Looks up a program and compiles it on a miss. The program is compiled
+	 * outside of the map, so lookups of other keys never wait for the compiler.
+	 * Concurrent misses for the same key may compile twice, but all of them get
+	 * the program that was cached first. Programs that fail to compile are not
+	 * cached.
+	 *
+	 * @param key
+	 *            The normalized form of the expression.
+	 * @param compiler
+	 *            Compiles the program on a miss.
+	 * @return The cached or compiled program.
+	 */
+	static Program get(String key, Supplier<Program> compiler) {
+		long now = System.nanoTime();
+		Program program = programs.get(key);
+
+		if (program == null) {
+			misses.increment();
+			program = compiler.get();
+			program.lastAccess = now;
+
+			if (MAX_SIZE <= 0) {
+				return program;
+			}
+
+			Program cached = programs.putIfAbsent(key, program);
+
+			if (cached == null) {
+				scheduleSweep(now);
+				return program;
+			}
+
+			program = cached;
+		} else {
+			hits.increment();
+		}
+
+		program.lastAccess = now;
+		return program;
+	}
+
+	/**
+	 * Schedules a sweep if the cache is full or the last sweep is longer ago
+	 * than a quarter of {@link #MAX_IDLE_MILLIS}, unless a sweep is pending.
+	 */
+	private static void scheduleSweep(long now) {
+		long interval = TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_MILLIS) / 4;
+
+		if ((programs.size() > MAX_SIZE || now - lastSweep > interval) && isSweepPending.compareAndSet(false, true)) {
+			EVICTOR.execute(() -> {
+				isSweepPending.set(false);
+				evict(System.nanoTime());
+			});
+		}
+	}
+
+	/**
+	 * Evicts the programs that have not been used for longer than
+	 * {@link #MAX_IDLE_MILLIS} and then the least recently used programs until
+	 * the cache has at most {@link #MAX_SIZE} programs.
+	 *
+	 * @param now
+	 *            The current value of {@link System#nanoTime()}.
+	 */
+	static void evict(long now) {
+		long maxIdle = TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_MILLIS);
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		lastSweep = now;
+
+		for (Map.Entry<String, Program> entry : programs.entrySet()) {
+			Candidate candidate = new Candidate(entry.getKey(), entry.getValue(), now);
+
+			if (candidate.idle <= maxIdle) {
+				candidates.add(candidate);
+			} else if (programs.remove(candidate.key, candidate.program)) {
+				expirations.increment();
+			}
+		}
+
+		if (candidates.size() <= MAX_SIZE) {
+			return;
+		}
+
+		candidates.sort(Comparator.comparingLong((Candidate candidate) -> candidate.idle).reversed());
+
+		for (int i = 0; i < candidates.size() - MAX_SIZE; i++) {
+			if (programs.remove(candidates.get(i).key, candidates.get(i).program)) {
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * A cached program and its idle time when the sweep started. The time is
+	 * kept, since programs may be used while they are sorted.
+	 */
+	private static class Candidate {
+
+		private final String key;
+		private final Program program;
+		private final long idle;
+
+		Candidate(String key, Program program, long now) {
+			this.key = key;
+			this.program = program;
+			this.idle = now - program.lastAccess;
+		}
+	}
+
+	/**
+	 * Removes all programs. The counters are kept.
+	 */
+	public static void clear() {
+		programs.clear();
+	}
+
+	/* Counters */
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of programs evicted because the cache was full.
+	 *
+	 * @return The number of evictions by size.
+	 */
+	public static long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Returns the number of programs evicted because they were not used for
+	 * longer than {@link #MAX_IDLE_MILLIS}.
+	 *
+	 * @return The number of evictions by idle time.
+	 */
+	public static long getExpirations() {
+		return expirations.sum();
+	}
+
+	public static int size() {
+		return programs.size();
+	}
+
+	public static void resetCounters() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+		expirations.reset();
+	}
+
+}
@@ -0,0 +1,49 @@
+package plotter.expressions;
+
+import plotter.expressions.FunctionUtil.Function;
+import plotter.expressions.OperatorUtil.Operator;
+
+/**
+ * A token of an expression, created by the {@link Lexer}. Numbers are already
+ * parsed and operators and functions are already looked up, so the parser and
+ * the compiler never have to look at the text of a token again.
+ */
+final class Token {
+
+	/* Token types */
+	static final int NUMBER = 0;
+	static final int IDENTIFIER = 1;
+	static final int OPERATOR = 2;
+	static final int OPEN = 3;
+	static final int CLOSE = 4;
+	static final int COMMA = 5;
+
+	/* The type of the token */
+	final int type;
+
+	/* The text of the token and its offset in the expression */
+	final String text;
+	final int offset;
+
+	/* The value of a number */
+	final double value;
+
+	/* The operator of an operator, the function named by an identifier or null */
+	final Operator operator;
+	final Function function;
+
+	Token(int type, String text, int offset, double value, Operator operator, Function function) {
+		this.type = type;
+		this.text = text;
+		this.offset = offset;
+		this.value = value;
+		this.operator = operator;
+		this.function = function;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
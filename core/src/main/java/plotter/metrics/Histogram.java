@@ -0,0 +1,155 @@
+package plotter.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non-negative values, e.g. durations in nanoseconds.
+ * Values are counted in buckets growing with the value: every power of two is
+ * split into {@link #SUB_BUCKETS} buckets, so percentiles are accurate to
+ * within a quarter of their value. Recording a value costs a few atomic
+ * additions and never allocates, so histograms may be recorded on hot paths.
+ */
+public class Histogram {
+
+	/* Buckets per power of two */
+	private static final int SUB_BUCKETS = 4;
+	private static final int SUB_BITS = 2;
+
+	/* Enough buckets for every non-negative long */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	Histogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0. Nothing is recorded
+	 * while metrics are disabled, see {@link Metrics#setEnabled(boolean)}.
+	 *
+	 * @param value
+	 *            The value to record.
+	 */
+	public void record(long value) {
+		if (!Metrics.isEnabled()) {
+			return;
+		}
+
+		if (value < 0) {
+			value = 0;
+		}
+
+		buckets.incrementAndGet(indexOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns the bucket of a value. Values below {@link #SUB_BUCKETS} have a
+	 * bucket each, larger values share a bucket with the values having the
+	 * same highest bit and the same {@link #SUB_BITS} bits below it.
+	 */
+	private static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value counted in a bucket.
+	 */
+	private static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = SUB_BUCKETS + index % SUB_BUCKETS + 1;
+		return exponent == 62 && sub == 2 * SUB_BUCKETS ? Long.MAX_VALUE : (sub << (exponent - SUB_BITS)) - 1;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Returns an estimate of a percentile of the recorded values: the upper
+	 * bound of the bucket containing the percentile, but at most the largest
+	 * recorded value. Values recorded during the call may or may not be taken
+	 * into account.
+	 *
+	 * @param percentile
+	 *            The percentile between 0 and 100.
+	 * @return The estimated percentile or 0, if no value was recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += buckets.get(i);
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Removes all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString() {
+		return name + " [count=" + getCount() + ", mean=" + getMean() + ", p50=" + getPercentile(50) + ", p99="
+				+ getPercentile(99) + ", max=" + getMax() + "]";
+	}
+}
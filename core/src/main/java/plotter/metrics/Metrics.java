@@ -0,0 +1,195 @@
+package plotter.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Process wide metrics of parsing, evaluating and drawing expressions.
+ * Latencies are recorded in {@link Histogram}s, counters kept elsewhere, e.g.
+ * the hits of a cache, are registered as gauges and read when the metrics are
+ * queried. All metrics are queried at once with {@link #snapshot()}, keyed by
+ * flat names like <code>parse.p99</code> or <code>programCache.hitRate</code>.
+ *
+ * Recording costs a few atomic additions and never allocates, so metrics are
+ * enabled by default.
+ */
+public class Metrics {
+
+	/* Switch for recording values in histograms */
+	private static volatile boolean enabled = true;
+
+	/* Percentiles listed in snapshots */
+	public static double[] PERCENTILES = { 50, 90, 99 };
+
+	/* Registered histograms and gauges by name */
+	private static final ConcurrentSkipListMap<String, Histogram> histograms = new ConcurrentSkipListMap<String, Histogram>();
+	private static final ConcurrentSkipListMap<String, DoubleSupplier> gauges = new ConcurrentSkipListMap<String, DoubleSupplier>();
+
+	/* Nanoseconds to convert an expression to RPN */
+	public static final Histogram PARSE_NANOS = histogram("parse");
+
+	/* Nanoseconds to compile a RPN to a program, on misses of the program cache */
+	public static final Histogram COMPILE_NANOS = histogram("compile");
+
+	/* Picoseconds per sample of batch evaluations, see #recordEval(int, long) */
+	public static final Histogram EVAL_PICOS_PER_SAMPLE = histogram("evalPicosPerSample");
+
+	/* Nanoseconds to build the paths or canvases of a plot */
+	public static final Histogram DRAW_NANOS = histogram("draw");
+
+	/* Scene graph nodes of a plot, counting every path element */
+	public static final Histogram PLOT_NODES = histogram("plotNodes");
+
+	private Metrics() {
+		// No instantiation
+	}
+
+	/* Switch */
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Returns the histogram of a name, creating it if necessary.
+	 *
+	 * @param name
+	 *            The name of the histogram.
+	 * @return The histogram of the name.
+	 */
+	public static Histogram histogram(String name) {
+		return histograms.computeIfAbsent(name, Histogram::new);
+	}
+
+	/**
+	 * Registers a gauge, replacing the gauge registered before under the same
+	 * name. Gauges are read on every {@link #snapshot()}, so they should be
+	 * cheap.
+	 *
+	 * @param name
+	 *            The name of the gauge.
+	 * @param gauge
+	 *            Supplies the current value.
+	 */
+	public static void register(String name, DoubleSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Registers the gauges <code>prefix.hits</code>,
+	 * <code>prefix.misses</code> and <code>prefix.hitRate</code> of a cache.
+	 * The hit rate is 0 as long as the cache was not used.
+	 *
+	 * @param prefix
+	 *            The name of the cache.
+	 * @param hits
+	 *            Supplies the number of hits.
+	 * @param misses
+	 *            Supplies the number of misses.
+	 */
+	public static void registerCache(String prefix, LongSupplier hits, LongSupplier misses) {
+		register(prefix + ".hits", () -> hits.getAsLong());
+		register(prefix + ".misses", () -> misses.getAsLong());
+		register(prefix + ".hitRate", () -> {
+			long h = hits.getAsLong();
+			long total = h + misses.getAsLong();
+			return total == 0 ? 0 : (double) h / total;
+		});
+	}
+
+	/**
+	 * Records a batch evaluation. Since a sample takes only a few
+	 * nanoseconds, the time per sample is recorded in picoseconds.
+	 *
+	 * @param samples
+	 *            The number of evaluated samples.
+	 * @param nanos
+	 *            The duration of the batch.
+	 */
+	public static void recordEval(int samples, long nanos) {
+		if (samples > 0) {
+			EVAL_PICOS_PER_SAMPLE.record(nanos * 1000 / samples);
+		}
+	}
+
+	/**
+	 * Queries all metrics. Histograms contribute their count, mean, maximum and
+	 * {@link #PERCENTILES}, e.g. <code>parse.count</code> and
+	 * <code>parse.p99</code>, gauges their current value.
+	 *
+	 * @return The metrics by name, in order of their names.
+	 */
+	public static SortedMap<String, Double> snapshot() {
+		SortedMap<String, Double> snapshot = new TreeMap<String, Double>();
+
+		for (Histogram histogram : histograms.values()) {
+			String name = histogram.getName();
+			snapshot.put(name + ".count", (double) histogram.getCount());
+			snapshot.put(name + ".mean", histogram.getMean());
+			snapshot.put(name + ".max", (double) histogram.getMax());
+
+			for (double percentile : PERCENTILES) {
+				snapshot.put(name + ".p" + formatPercentile(percentile), (double) histogram.getPercentile(percentile));
+			}
+		}
+
+		for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+			snapshot.put(gauge.getKey(), gauge.getValue().getAsDouble());
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Renders the metrics as text, one histogram or gauge per line.
+	 *
+	 * @return The metrics as text.
+	 */
+	public static String format() {
+		StringBuilder builder = new StringBuilder();
+
+		for (Histogram histogram : histograms.values()) {
+			builder.append(histogram.getName()).append(": n=").append(histogram.getCount());
+			builder.append(" mean=").append(format(histogram.getMean()));
+
+			for (double percentile : PERCENTILES) {
+				builder.append(" p").append(formatPercentile(percentile)).append('=')
+						.append(histogram.getPercentile(percentile));
+			}
+
+			builder.append(" max=").append(histogram.getMax()).append('\n');
+		}
+
+		for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+			builder.append(gauge.getKey()).append(": ").append(format(gauge.getValue().getAsDouble())).append('\n');
+		}
+
+		return builder.toString();
+	}
+
+	private static String formatPercentile(double percentile) {
+		return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+	}
+
+	private static String format(double value) {
+		return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+				: String.format("%.3f", value);
+	}
+
+	/**
+	 * Removes the values of all histograms. Gauges are not affected.
+	 */
+	public static void reset() {
+		for (Histogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package plotter.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the code generated by the {@link BytecodeCompiler} with the
+ * interpreter, bit for bit, over a corpus of expressions and edge inputs.
+ */
+public class BytecodeCompilerTest {
+
+	/* Expressions the compiler supports */
+	private static final String[] SUPPORTED = { "x", "0 - x", "42", "x + 1", "x - 1", "1 - x", "x * x", "x / 3",
+			"3 / x", "x^2", "x^3", "x^-1", "x^0.5", "2^x", "x^3 - 2*x^2 + x - 5", "3*x^4 + 2*x^3 - x^2 + 7*x - 1",
+			"(x - 1)*(x + 2)*(x - 3)", "0.5*x^5 - x^3/3 + x/7", "sin(x)", "cos(x)", "tan(x)", "cot(x)", "sec(x)",
+			"csc(x)", "sinh(x)", "cosh(x)", "tanh(x)", "sin(x)*cos(x/2)", "tan(x) + sec(x)",
+			"sinh(x/4) - cosh(x/5) + tanh(x)", "2.718281828459045^x", "ln(x)", "log2(x)", "log10(x)", "sqrt(x)",
+			"abs(x)", "sqrt(x - 2)", "log10(x) + sqrt(x - 2)", "ln(0 - x)", "sqrt(0 - x)*sqrt(0 - x)",
+			"sin(cos(sin(cos(sin(x)))))", "((((x + 1)*2 + 3)*4 + 5)*6 + 7)/(x^2 + 1)",
+			"ln(abs(sqrt(x*x + 1) + sin(x)*cos(x)) + 1)", "sin(x)*sin(x) + cos(x)*cos(x)", "2^log2(x)", "1/(x - 1)",
+			"x/0", "0/x", "sqrt(x)/x" };
+
+	/* Expressions with operators or functions the compiler may not support */
+	private static final String[] FALLBACK = { "x % 3", "x^x", "x^sin(x)", "arcsin(x)", "arccos(x)", "arctan(x)",
+			"x^0.5 + arcsin(x/5)", "rad(x)", "deg(x)", "PI*x" };
+
+	/* Comparisons, which fail for complex operands and thus infinite inputs */
+	private static final String[] COMPARISONS = { "x > 1", "x < 1", "x == 2", "x <> 2", "x >= 0 && x <= 1",
+			"x < 0 || x > 1", "(x > 0)*sin(x)", "max(sin(x), cos(x))", "min(x, 1)",
+			"abs(sin(x) - cos(x)) + abs(sin(x) + cos(x)) + max(sin(x), cos(x))" };
+
+	private static final double[] XS = inputs();
+	private static final double[] FINITE = range(401);
+
+	private boolean enabled;
+	private int threshold;
+
+	@BeforeEach
+	public void setUp() {
+		enabled = BytecodeCompiler.isEnabled();
+		threshold = BytecodeCompiler.getThreshold();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		BytecodeCompiler.setEnabled(enabled);
+		BytecodeCompiler.setThreshold(threshold);
+	}
+
+	/**
+	 * Sample points of the range [-10, 10] and the special values of doubles.
+	 */
+	private static double[] inputs() {
+		double[] special = { Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0.0, -0.0,
+				Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL / 2, -Double.MIN_NORMAL / 2, Double.MIN_NORMAL,
+				Double.MAX_VALUE, -Double.MAX_VALUE, 1, -1, 2, 0.5, -0.5, 1e300, -1e300, Math.PI / 2 };
+		double[] range = range(401);
+		double[] xs = new double[special.length + range.length];
+
+		System.arraycopy(special, 0, xs, 0, special.length);
+		System.arraycopy(range, 0, xs, special.length, range.length);
+		return xs;
+	}
+
+	private static double[] range(int samples) {
+		double[] xs = new double[samples];
+
+		for (int i = 0; i < samples; i++) {
+			xs[i] = -10 + 20.0 * i / (samples - 1);
+		}
+
+		return xs;
+	}
+
+	@Test
+	public void generatedMatchesInterpreter() {
+		for (String expression : SUPPORTED) {
+			Program program = new Expression(expression).getProgram();
+			assertNotNull(BytecodeCompiler.compile(program), expression);
+			assertSame(expression, XS, interpret(program, XS), generate(program, XS));
+		}
+	}
+
+	@Test
+	public void fallbackMatchesInterpreter() {
+		for (String expression : FALLBACK) {
+			Program program = new Expression(expression).getProgram();
+			assertSame(expression, XS, interpret(program, XS), generate(program, XS));
+		}
+
+		for (String expression : COMPARISONS) {
+			Program program = new Expression(expression).getProgram();
+			assertSame(expression, FINITE, interpret(program, FINITE), generate(program, FINITE));
+		}
+	}
+
+	@Test
+	public void comparisonsAreNotSupported() {
+		assertNull(BytecodeCompiler.compile(new Expression("x > 1").getProgram()));
+	}
+
+	/**
+	 * Batches evaluated concurrently, like the chunks of the sampler, are all
+	 * counted towards the threshold.
+	 */
+	@Test
+	public void batchesAreCountedAcrossThreads() throws InterruptedException {
+		Program program = new Expression("x^2/7 + 13").getProgram();
+		BytecodeCompiler.setEnabled(true);
+		BytecodeCompiler.setThreshold(Integer.MAX_VALUE);
+
+		int before = program.batches.get();
+		Thread[] threads = new Thread[8];
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					eval(program, FINITE);
+				}
+			});
+			threads[i].start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(before + 8 * 1000, program.batches.get());
+	}
+
+	/**
+	 * Evaluating a slice of a batch gives the rows of the whole batch and leaves
+	 * the other rows untouched, with generated code and with the interpreter.
+	 */
+	@Test
+	public void slicesMatchWholeBatch() {
+		int from = 7;
+		int to = XS.length - 11;
+
+		for (boolean generated : new boolean[] { false, true }) {
+			for (String e : new String[] { "sin(x)*x + 1", "sqrt(x - 2)", "x^sin(x)", "a*x^2 + b" }) {
+				Expression expression = new Expression(e).with("a", 2).with("b", -3);
+				BytecodeCompiler.setEnabled(generated);
+				BytecodeCompiler.setThreshold(0);
+				double[][] whole = eval(expression, XS);
+				double[][] slice = new double[2][XS.length];
+				Arrays.fill(slice[0], 42);
+				Arrays.fill(slice[1], 42);
+				expression.eval(XS, slice[0], slice[1], from, to);
+
+				for (int i = 0; i < XS.length; i++) {
+					String message = e + " at x = " + XS[i];
+					boolean inside = i >= from && i < to;
+					assertEquals(bits(inside ? whole[0][i] : 42), bits(slice[0][i]), message);
+					assertEquals(bits(inside ? whole[1][i] : 42), bits(slice[1][i]), message);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void variablesAreBound() {
+		Expression expression = new Expression("a*x^2 + b").with("a", 2).with("b", -3);
+		BytecodeCompiler.setEnabled(false);
+		double[][] interpreted = eval(expression, XS);
+		BytecodeCompiler.setEnabled(true);
+		BytecodeCompiler.setThreshold(0);
+		eval(expression, XS);
+		assertSame(expression.toString(), XS, interpreted, eval(expression, XS));
+	}
+
+	/**
+	 * Evaluates a program with the interpreter.
+	 */
+	private static double[][] interpret(Program program, double[] xs) {
+		BytecodeCompiler.setEnabled(false);
+		return eval(program, xs);
+	}
+
+	/**
+	 * Evaluates a program with the generated code, compiling it on the first
+	 * evaluation, or with the interpreter, if the program is not supported.
+	 */
+	private static double[][] generate(Program program, double[] xs) {
+		BytecodeCompiler.setEnabled(true);
+		BytecodeCompiler.setThreshold(0);
+		eval(program, xs);
+		return eval(program, xs);
+	}
+
+	private static double[][] eval(Expression expression, double[] xs) {
+		double[][] result = new double[2][xs.length];
+		expression.eval(xs, result[0], result[1]);
+		return result;
+	}
+
+	private static double[][] eval(Program program, double[] xs) {
+		double[][] result = new double[2][xs.length];
+		int slot = program.getSlot("x");
+		double[][] real = new double[program.getNumVariables()][];
+		double[][] imaginary = new double[program.getNumVariables()][];
+
+		if (slot >= 0) {
+			real[slot] = xs;
+			imaginary[slot] = new double[xs.length];
+		}
+
+		program.eval(real, imaginary, result[0], result[1], xs.length);
+		return result;
+	}
+
+	/**
+	 * Compares results bit for bit. Zeros of different signs are equal, since
+	 * the real arithmetic of the interpreter always yields a positive zero as
+	 * imaginary part, while complex arithmetic may yield a negative one.
+	 */
+	private static void assertSame(String expression, double[] xs, double[][] expected, double[][] actual) {
+		for (int i = 0; i < xs.length; i++) {
+			String message = expression + " at x = " + xs[i];
+			assertEquals(bits(expected[0][i]), bits(actual[0][i]), message);
+			assertEquals(bits(expected[1][i]), bits(actual[1][i]), message);
+		}
+	}
+
+	private static long bits(double value) {
+		return Double.doubleToLongBits(value == 0 ? 0 : value);
+	}
+}
@@ -0,0 +1,37 @@
+package plotter.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the methods of {@link ComplexNumber}.
+ */
+public class ComplexNumberTest {
+
+	/**
+	 * Equality of objects is reflexive, also for {@link ComplexNumber#NaN}, and
+	 * consistent with the hash code. The arithmetic comparison keeps the
+	 * semantics of <code>==</code>.
+	 */
+	@Test
+	public void equalsIsReflexive() {
+		Object nan = new ComplexNumber(Double.NaN, Double.NaN);
+		assertEquals(ComplexNumber.NaN, nan);
+		assertEquals(ComplexNumber.NaN.hashCode(), nan.hashCode());
+		assertEquals(new ComplexNumber(Double.NaN, 1), new ComplexNumber(Double.NaN, 1));
+		assertNotEquals(new ComplexNumber(0.0, 0), new ComplexNumber(-0.0, 0));
+		assertNotEquals(ComplexNumber.ONE, (Object) new ComplexNumber(1, 1));
+		assertEquals(Set.of(ComplexNumber.NaN), Set.of(nan));
+		assertTrue(ComplexNumber.NaN.equals(ComplexNumber.NaN));
+
+		assertFalse(ComplexNumber.NaN.isEqualTo(ComplexNumber.NaN));
+		assertTrue(new ComplexNumber(0.0, 0).isEqualTo(new ComplexNumber(-0.0, -0.0)));
+	}
+
+}
@@ -0,0 +1,70 @@
+package plotter.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Counts the bytes allocated by evaluating single samples on a reusable stack,
+ * which must not allocate on the real path.
+ */
+public class EvalStackTest {
+
+	private static final String[] EXPRESSIONS = { "sin(x)*x+1", "arctan(x)+arccos(x)", "arcsin(x/5)",
+			"rad(x)+deg(x)", "max(sin(x), cos(x))", "min(x, 2)", "sqrt(x)", "ln(x)", "x^0.5", "x^3 - 2*x",
+			"tanh(x)/cosh(x)", "arcsin(x)", "x % 3", "x^sin(x)", "x > 1", "abs(x) > 1 && x < 5" };
+
+	private static final int SAMPLES = 100000;
+
+	private ThreadMXBean threads;
+
+	@BeforeEach
+	public void setUp() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+		threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * Evaluating a sample costs less than one byte on average, only the warm up
+	 * may allocate.
+	 */
+	@Test
+	public void evalDoesNotAllocate() {
+		for (String e : EXPRESSIONS) {
+			Expression expression = new Expression(e);
+			EvalStack stack = expression.newStack();
+
+			run(expression, stack);
+
+			long before = allocated();
+			double sum = run(expression, stack);
+			long bytes = allocated() - before;
+
+			assertTrue(bytes < SAMPLES, e + " allocated " + bytes + " bytes for " + SAMPLES + " samples " + sum);
+		}
+	}
+
+	private double run(Expression expression, EvalStack stack) {
+		double sum = 0;
+
+		for (int i = 0; i < SAMPLES; i++) {
+			expression.eval(-10 + 20.0 * i / SAMPLES, stack);
+			sum += stack.getReal();
+		}
+
+		return sum;
+	}
+
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -0,0 +1,99 @@
+package plotter.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import plotter.expressions.FunctionUtil.Function;
+
+/**
+ * Checks the real implementations of the functions against their complex
+ * kernels on the real axis.
+ */
+public class FunctionUtilTest {
+
+	private static final String[] FUNCTIONS = { "SIN", "COS", "TAN", "SEC", "COT", "CSC", "SINH", "COSH", "TANH",
+			"ARCSIN", "ARCCOS", "ARCTAN", "RAD", "DEG", "ABS", "LN", "LOG2", "LOG10", "SQRT" };
+
+	/**
+	 * Finite results of the real implementation must be exactly the real part
+	 * of the kernel, and the kernel must have a real result. Zeros of different
+	 * signs are equal. Results that are not finite are not checked, since the
+	 * evaluator computes them again with complex arithmetic.
+	 */
+	@Test
+	public void realMatchesKernel() {
+		double[] re = new double[1];
+		double[] im = new double[1];
+
+		for (String name : FUNCTIONS) {
+			Function function = FunctionUtil.getFunction(name);
+
+			for (double x : inputs()) {
+				String message = name + " at x = " + x;
+				double real = function.evalReal(new double[] { x });
+				function.evalComplex(x, 0, re, im, 0);
+
+				if (Double.isFinite(real)) {
+					assertEquals(bits(re[0]), bits(real), message);
+					assertTrue(im[0] == 0, message);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The arc functions leave the real path, so the evaluator gives exactly the
+	 * results of {@link ComplexNumber}, on single samples and in batches.
+	 */
+	@Test
+	public void arcFunctionsMatchComplexNumber() {
+		double[] xs = inputs();
+
+		for (String name : new String[] { "arcsin", "arccos", "arctan" }) {
+			Expression expression = new Expression(name + "(x)");
+			EvalStack stack = expression.newStack();
+			double[] real = new double[xs.length];
+			double[] imaginary = new double[xs.length];
+			expression.eval(xs, real, imaginary);
+
+			for (int i = 0; i < xs.length; i++) {
+				String message = name + " at x = " + xs[i];
+				ComplexNumber w = FunctionUtil.getFunction(name.toUpperCase()).eval(List.of(new ComplexNumber(xs[i])));
+				expression.eval(xs[i], stack);
+
+				assertEquals(Double.doubleToLongBits(w.getReal()), Double.doubleToLongBits(stack.getReal()), message);
+				assertEquals(Double.doubleToLongBits(w.getImaginary()),
+						Double.doubleToLongBits(stack.getImaginary()), message);
+				assertEquals(Double.doubleToLongBits(w.getReal()), Double.doubleToLongBits(real[i]), message);
+				assertEquals(Double.doubleToLongBits(w.getImaginary()), Double.doubleToLongBits(imaginary[i]),
+						message);
+			}
+		}
+	}
+
+	private static long bits(double value) {
+		return Double.doubleToLongBits(value == 0 ? 0 : value);
+	}
+
+	/**
+	 * Finite sample points of the range [-10, 10], the bounds of the domains of
+	 * the arc functions and tiny values.
+	 */
+	private static double[] inputs() {
+		double[] special = { 0.0, -0.0, 1, -1, Math.nextDown(1.0), Math.nextUp(-1.0), Math.nextUp(1.0),
+				Math.nextDown(-1.0), Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, 1e-300, 1e300 };
+		int samples = 4001;
+		double[] xs = new double[special.length + samples];
+
+		System.arraycopy(special, 0, xs, 0, special.length);
+		for (int i = 0; i < samples; i++) {
+			xs[special.length + i] = -10 + 20.0 * i / (samples - 1);
+		}
+
+		return xs;
+	}
+}
@@ -0,0 +1,74 @@
+package plotter.expressions;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which programs the sweeps of the {@link ProgramCache} evict.
+ */
+public class ProgramCacheTest {
+
+	private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+	private int maxSize;
+
+	@BeforeEach
+	public void setUp() {
+		maxSize = ProgramCache.MAX_SIZE;
+		ProgramCache.clear();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		ProgramCache.MAX_SIZE = maxSize;
+		ProgramCache.clear();
+	}
+
+	/**
+	 * A program that keeps evaluating batches is in use, even if it is never
+	 * looked up again.
+	 */
+	@Test
+	public void batchesKeepProgram() {
+		Expression expression = new Expression("x^2 + 17*x");
+		Program program = expression.getProgram();
+		program.lastAccess -= HOUR;
+
+		double[] xs = { 1, 2, 3 };
+		expression.eval(xs, new double[3], new double[3]);
+		ProgramCache.evict(System.nanoTime());
+
+		assertSame(program, new Expression("x^2+17*x").getProgram());
+	}
+
+	@Test
+	public void idleProgramExpires() {
+		Program program = new Expression("x^2 + 19*x").getProgram();
+		program.lastAccess -= HOUR;
+		ProgramCache.evict(System.nanoTime());
+
+		assertNotSame(program, new Expression("x^2 + 19*x").getProgram());
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		Program first = new Expression("x + 23").getProgram();
+		Program second = new Expression("x + 29").getProgram();
+		Program third = new Expression("x + 31").getProgram();
+		first.lastAccess = third.lastAccess;
+		second.lastAccess = third.lastAccess - 1;
+		ProgramCache.MAX_SIZE = 2;
+		ProgramCache.evict(third.lastAccess);
+
+		assertSame(first, new Expression("x + 23").getProgram());
+		assertSame(third, new Expression("x + 31").getProgram());
+		assertNotSame(second, new Expression("x + 29").getProgram());
+	}
+
+}
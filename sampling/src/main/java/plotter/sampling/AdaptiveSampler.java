@@ -0,0 +1,184 @@
+package plotter.sampling;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import plotter.expressions.Expression;
+
+/**
+ * Samples expressions adaptively. The range is first sampled on a coarse grid,
+ * then every interval is split at its midpoint for as long as the curve
+ * deviates from the straight line between its ends by more than a tolerance in
+ * pixels. Straight parts of a curve stay coarse, while spikes and oscillations
+ * get as many samples as they need, up to a fixed budget.
+ *
+ * Each round of refinement evaluates all new midpoints as one batch on the
+ * {@link Sampler}.
+ */
+public class AdaptiveSampler {
+
+	/* Allowed deviation of the drawn line from the curve in pixels */
+	public static double TOLERANCE = 0.5;
+
+	/* Distance of the initial samples in pixels */
+	public static double INITIAL_STEP = 2;
+
+	/* Smallest interval that is split in pixels */
+	public static double MIN_STEP = 1.0 / 64;
+
+	/* Maximum number of samples of one curve */
+	public static int MAX_POINTS = 20000;
+
+	/**
+	 * Samples an expression adaptively.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param lowerBound
+	 *            The first x coordinate.
+	 * @param upperBound
+	 *            The last x coordinate.
+	 * @param xScale
+	 *            The number of pixels per unit on the x axis.
+	 * @param yScale
+	 *            The number of pixels per unit on the y axis.
+	 * @param cancelled
+	 *            Returns <code>true</code>, if the result is not needed anymore.
+	 * @return The sampled values.
+	 * @throws CancellationException
+	 *             If sampling was cancelled.
+	 */
+	public static Samples sample(Expression expression, double lowerBound, double upperBound, double xScale,
+			double yScale, BooleanSupplier cancelled) {
+		double width = (upperBound - lowerBound) * xScale;
+		int count = (int) Math.max(1, Math.min(MAX_POINTS - 1, Math.ceil(width / INITIAL_STEP)));
+		double[] xs = new double[count + 1];
+
+		for (int i = 0; i <= count; i++) {
+			xs[i] = lowerBound + (upperBound - lowerBound) * i / count;
+		}
+
+		Samples samples = Sampler.sample(expression, xs, cancelled);
+		double[] errors = new double[count];
+
+		// The initial intervals are all tested once
+		for (int i = 0; i < count; i++) {
+			errors[i] = (xs[i + 1] - xs[i]) * xScale >= 2 * MIN_STEP ? Double.POSITIVE_INFINITY : 0;
+		}
+
+		while (true) {
+			boolean[] split = split(errors, MAX_POINTS - samples.size());
+			double[] midpoints = midpoints(samples.getXs(), split);
+
+			if (midpoints.length == 0) {
+				return samples;
+			}
+
+			Samples middle = Sampler.sample(expression, midpoints, cancelled);
+			int size = samples.size() + middle.size();
+			double[] mergedXs = new double[size];
+			double[] mergedReal = new double[size];
+			double[] mergedImaginary = new double[size];
+			double[] mergedErrors = new double[size - 1];
+
+			for (int i = 0, j = 0, k = 0; i < samples.size(); i++) {
+				mergedXs[k] = samples.getXs()[i];
+				mergedReal[k] = samples.getReal()[i];
+				mergedImaginary[k] = samples.getImaginary()[i];
+				k++;
+
+				if (i < split.length && split[i]) {
+					mergedXs[k] = middle.getXs()[j];
+					mergedReal[k] = middle.getReal()[j];
+					mergedImaginary[k] = middle.getImaginary()[j];
+
+					// Both halves inherit the error of the midpoint
+					double error = Math.max(deviation(samples.getReal(), middle.getReal()[j], i, yScale),
+							deviation(samples.getImaginary(), middle.getImaginary()[j], i, yScale));
+					boolean isWide = (samples.getXs()[i + 1] - samples.getXs()[i]) * xScale >= 4 * MIN_STEP;
+
+					mergedErrors[k - 1] = isWide ? error : 0;
+					mergedErrors[k] = isWide ? error : 0;
+					j++;
+					k++;
+				}
+			}
+
+			samples = new Samples(mergedXs, mergedReal, mergedImaginary);
+			errors = mergedErrors;
+		}
+	}
+
+	/**
+	 * Computes the vertical distance in pixels of a midpoint from the line
+	 * between the ends of interval <code>i</code>. A midpoint is infinitely far
+	 * off, if some but not all of the three values are finite.
+	 */
+	private static double deviation(double[] ys, double middle, int i, double yScale) {
+		double from = ys[i];
+		double to = ys[i + 1];
+		int finite = (Double.isFinite(from) ? 1 : 0) + (Double.isFinite(to) ? 1 : 0)
+				+ (Double.isFinite(middle) ? 1 : 0);
+
+		if (finite == 0) {
+			return 0;
+		} else if (finite < 3) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return Math.abs(middle - (from + to) / 2) * yScale;
+	}
+
+	/**
+	 * Selects the intervals to split. If the budget does not allow to split all
+	 * intervals above the tolerance, the ones with the largest errors are split.
+	 */
+	private static boolean[] split(double[] errors, int budget) {
+		boolean[] split = new boolean[errors.length];
+		double[] candidates = new double[errors.length];
+		int count = 0;
+
+		for (double error : errors) {
+			if (error > TOLERANCE) {
+				candidates[count++] = error;
+			}
+		}
+
+		if (count == 0 || budget <= 0) {
+			return split;
+		}
+
+		double threshold = TOLERANCE;
+		if (count > budget) {
+			Arrays.sort(candidates, 0, count);
+			threshold = Math.max(TOLERANCE, Math.nextDown(candidates[count - budget]));
+		}
+
+		for (int i = 0; i < errors.length && budget > 0; i++) {
+			if (errors[i] > threshold) {
+				split[i] = true;
+				budget--;
+			}
+		}
+
+		return split;
+	}
+
+	private static double[] midpoints(double[] xs, boolean[] split) {
+		int count = 0;
+		for (boolean b : split) {
+			count += b ? 1 : 0;
+		}
+
+		double[] midpoints = new double[count];
+		for (int i = 0, k = 0; i < split.length; i++) {
+			if (split[i]) {
+				midpoints[k++] = (xs[i] + xs[i + 1]) / 2;
+			}
+		}
+
+		return midpoints;
+	}
+
+}
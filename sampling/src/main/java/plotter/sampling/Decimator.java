@@ -0,0 +1,114 @@
+package plotter.sampling;
+
+/**
+ * Reduces dense samples to what can be seen on screen. Of all samples falling
+ * into the same pixel column only the first, the last and those with the
+ * minimum and maximum value are kept (M4 aggregation). A line through the kept
+ * samples covers exactly the same pixels as a line through all samples, while
+ * the number of vertices is at most four per column and curve.
+ *
+ * Samples which are not finite are kept at the borders of a gap, so gaps in a
+ * curve stay gaps.
+ */
+public class Decimator {
+
+	private Decimator() {
+		// No instantiation
+	}
+
+	/**
+	 * Decimates samples. Samples with at most four values per column are
+	 * returned unchanged.
+	 *
+	 * @param samples
+	 *            The samples, sorted by x.
+	 * @param lowerBound
+	 *            The x coordinate of the left border of the first column.
+	 * @param xScale
+	 *            The number of pixels per unit on the x axis.
+	 * @param columns
+	 *            The number of pixel columns.
+	 * @return The decimated samples.
+	 */
+	public static Samples decimate(Samples samples, double lowerBound, double xScale, int columns) {
+		if (samples.size() <= 4 * columns) {
+			return samples;
+		}
+
+		double[] xs = samples.getXs();
+		boolean[] keep = new boolean[xs.length];
+		int from = 0;
+
+		while (from < xs.length) {
+			int column = column(xs[from], lowerBound, xScale, columns);
+			int to = from + 1;
+
+			while (to < xs.length && column(xs[to], lowerBound, xScale, columns) == column) {
+				to++;
+			}
+
+			keep(samples.getReal(), from, to, keep);
+			if (!samples.isReal()) {
+				keep(samples.getImaginary(), from, to, keep);
+			}
+
+			from = to;
+		}
+
+		int count = 0;
+		for (boolean b : keep) {
+			count += b ? 1 : 0;
+		}
+
+		double[] keptXs = new double[count];
+		double[] keptReal = new double[count];
+		double[] keptImaginary = new double[count];
+
+		for (int i = 0, k = 0; i < xs.length; i++) {
+			if (keep[i]) {
+				keptXs[k] = xs[i];
+				keptReal[k] = samples.getReal()[i];
+				keptImaginary[k] = samples.getImaginary()[i];
+				k++;
+			}
+		}
+
+		return new Samples(keptXs, keptReal, keptImaginary);
+	}
+
+	private static int column(double x, double lowerBound, double xScale, int columns) {
+		int column = (int) Math.floor((x - lowerBound) * xScale);
+		return Math.max(0, Math.min(columns - 1, column));
+	}
+
+	/**
+	 * Marks the first, last, minimum and maximum samples of the column
+	 * <code>[from, to)</code> and the non-finite samples next to finite ones.
+	 */
+	private static void keep(double[] ys, int from, int to, boolean[] keep) {
+		int min = -1;
+		int max = -1;
+
+		for (int i = from; i < to; i++) {
+			if (!Double.isFinite(ys[i])) {
+				keep[i] |= (i > from && Double.isFinite(ys[i - 1])) || (i < to - 1 && Double.isFinite(ys[i + 1]));
+			} else {
+				if (min < 0 || ys[i] < ys[min]) {
+					min = i;
+				}
+				if (max < 0 || ys[i] > ys[max]) {
+					max = i;
+				}
+			}
+		}
+
+		keep[from] = true;
+		keep[to - 1] = true;
+
+		if (min >= 0) {
+			keep[min] = true;
+			keep[max] = true;
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+package plotter.sampling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import plotter.expressions.Expression;
+import plotter.metrics.Metrics;
+
+/**
+ * Bounded cache of sampled curves. Curves are keyed by the normalized
+ * expression, the x range and the resolution they were sampled with, so a
+ * function that is selected, added or opened again for the same viewport is
+ * not sampled again.
+ *
+ * When the viewport is panned, the curve of the new range is combined from the
+ * cached curve of an overlapping range and samples of the newly exposed
+ * intervals only.
+ *
+ * The cache is bounded by the memory of the sample buffers. Once it is full,
+ * the least recently used curves are evicted.
+ */
+public class SampleCache {
+
+	/* Upper bound of the memory used by the buffers in bytes */
+	public static long MAX_BYTES = 64L * 1024 * 1024;
+
+	/* Memory of one sample: x coordinate, real and imaginary part */
+	private static final long BYTES_PER_SAMPLE = 3 * Double.BYTES;
+
+	/* The cached curves, least recently used first */
+	private static final LinkedHashMap<Key, Samples> curves = new LinkedHashMap<Key, Samples>(16, 0.75f, true);
+	private static long bytes = 0;
+
+	/* The cached ranges of each expression and resolution, guarded by curves */
+	private static final HashMap<Curve, HashMap<Key, Samples>> ranges = new HashMap<Curve, HashMap<Key, Samples>>();
+
+	/* Counters */
+	private static final LongAdder hits = new LongAdder();
+	private static final LongAdder misses = new LongAdder();
+	private static final LongAdder pans = new LongAdder();
+	private static final LongAdder evictions = new LongAdder();
+
+	static {
+		Metrics.registerCache("sampleCache", SampleCache::getHits, SampleCache::getMisses);
+		Metrics.register("sampleCache.bytes", SampleCache::getBytes);
+	}
+
+	private SampleCache() {
+		// No instantiation
+	}
+
+	/**
+	 * Samples a range of a curve.
+	 */
+	public interface Source {
+
+		/**
+		 * Samples the range <code>[lowerBound, upperBound]</code>.
+		 *
+		 * @param lowerBound
+		 *            The lower bound of the range.
+		 * @param upperBound
+		 *            The upper bound of the range.
+		 * @return The sampled values.
+		 */
+		Samples sample(double lowerBound, double upperBound);
+	}
+
+	/**
+	 * Looks up a curve and samples it on a miss. If a curve of an overlapping
+	 * range is cached, only the parts of the range it does not cover are
+	 * sampled. Sampling happens outside the lock, so concurrent misses for the
+	 * same key may sample twice.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param lowerBound
+	 *            The lower bound of the x range.
+	 * @param upperBound
+	 *            The upper bound of the x range.
+	 * @param resolution
+	 *            Anything else the samples depend on, e.g. the scales of the
+	 *            axes and the sampling mode.
+	 * @param source
+	 *            Samples ranges of the curve on a miss. Samples of
+	 *            overlapping ranges have to agree on the overlap.
+	 * @return The cached or sampled curve.
+	 */
+	public static Samples get(Expression expression, double lowerBound, double upperBound, String resolution,
+			Source source) {
+		Key key = new Key(new Curve(expression.toNormalizedString(), resolution), lowerBound, upperBound);
+
+		synchronized (curves) {
+			Samples samples = curves.get(key);
+			if (samples != null) {
+				hits.increment();
+				return samples;
+			}
+		}
+
+		misses.increment();
+		Samples previous = overlap(key);
+		Samples samples;
+
+		if (previous == null) {
+			samples = source.sample(lowerBound, upperBound);
+		} else {
+			samples = pan(previous, lowerBound, upperBound, source);
+			pans.increment();
+		}
+
+		put(key, samples);
+		return samples;
+	}
+
+	/**
+	 * Finds the cached curve with the same expression and resolution that
+	 * overlaps most with the range of a key. Only the ranges cached for the
+	 * expression and resolution are visited.
+	 */
+	private static Samples overlap(Key key) {
+		Samples best = null;
+		double bestOverlap = 0;
+
+		synchronized (curves) {
+			HashMap<Key, Samples> candidates = ranges.get(key.curve);
+
+			if (candidates == null) {
+				return null;
+			}
+
+			for (Samples samples : candidates.values()) {
+				if (samples.size() == 0) {
+					continue;
+				}
+
+				double overlap = Math.min(key.upperBound, samples.getXs()[samples.size() - 1])
+						- Math.max(key.lowerBound, samples.getXs()[0]);
+
+				if (overlap > bestOverlap) {
+					best = samples;
+					bestOverlap = overlap;
+				}
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Combines the cached samples of the overlap with new samples of the exposed
+	 * intervals on either side.
+	 */
+	private static Samples pan(Samples previous, double lowerBound, double upperBound, Source source) {
+		double first = previous.getXs()[0];
+		double last = previous.getXs()[previous.size() - 1];
+		List<Samples> parts = new ArrayList<Samples>();
+
+		if (lowerBound < first) {
+			parts.add(source.sample(lowerBound, first));
+		}
+
+		parts.add(previous.slice(lowerBound, upperBound));
+
+		if (upperBound > last) {
+			parts.add(source.sample(last, upperBound));
+		}
+
+		return Samples.join(parts.toArray(new Samples[0]));
+	}
+
+	private static void put(Key key, Samples samples) {
+		long size = samples.size() * BYTES_PER_SAMPLE;
+		if (size > MAX_BYTES) {
+			return;
+		}
+
+		synchronized (curves) {
+			Samples previous = curves.put(key, samples);
+			bytes += size - (previous == null ? 0 : previous.size() * BYTES_PER_SAMPLE);
+			ranges.computeIfAbsent(key.curve, c -> new HashMap<Key, Samples>()).put(key, samples);
+
+			Iterator<Map.Entry<Key, Samples>> iterator = curves.entrySet().iterator();
+			while (bytes > MAX_BYTES && iterator.hasNext()) {
+				Map.Entry<Key, Samples> entry = iterator.next();
+				bytes -= entry.getValue().size() * BYTES_PER_SAMPLE;
+				iterator.remove();
+				unindex(entry.getKey());
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Removes an evicted curve from the ranges of its expression and resolution.
+	 */
+	private static void unindex(Key key) {
+		HashMap<Key, Samples> candidates = ranges.get(key.curve);
+		candidates.remove(key);
+
+		if (candidates.isEmpty()) {
+			ranges.remove(key.curve);
+		}
+	}
+
+	/**
+	 * Removes all curves. The counters are kept.
+	 */
+	public static void clear() {
+		synchronized (curves) {
+			curves.clear();
+			ranges.clear();
+			bytes = 0;
+		}
+	}
+
+	/* Counters */
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of misses that were served from an overlapping cached
+	 * curve, sampling only the exposed intervals.
+	 *
+	 * @return The number of incremental pans.
+	 */
+	public static long getPans() {
+		return pans.sum();
+	}
+
+	public static long getEvictions() {
+		return evictions.sum();
+	}
+
+	public static int size() {
+		synchronized (curves) {
+			return curves.size();
+		}
+	}
+
+	public static long getBytes() {
+		synchronized (curves) {
+			return bytes;
+		}
+	}
+
+	public static void resetCounters() {
+		hits.reset();
+		misses.reset();
+		pans.reset();
+		evictions.reset();
+	}
+
+	/**
+	 * An expression sampled with a resolution, the ranges of one curve can be
+	 * combined when panning.
+	 */
+	private static class Curve {
+
+		private final String expression;
+		private final String resolution;
+
+		Curve(String expression, String resolution) {
+			this.expression = expression;
+			this.resolution = resolution;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Curve)) {
+				return false;
+			}
+
+			Curve c = (Curve) o;
+			return expression.equals(c.expression) && resolution.equals(c.resolution);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(expression, resolution);
+		}
+	}
+
+	/**
+	 * Key of a cached curve.
+	 */
+	private static class Key {
+
+		private final Curve curve;
+		private final double lowerBound;
+		private final double upperBound;
+
+		Key(Curve curve, double lowerBound, double upperBound) {
+			this.curve = curve;
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+
+			Key k = (Key) o;
+			return curve.equals(k.curve) && Double.compare(lowerBound, k.lowerBound) == 0
+					&& Double.compare(upperBound, k.upperBound) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(curve, lowerBound, upperBound);
+		}
+	}
+
+}
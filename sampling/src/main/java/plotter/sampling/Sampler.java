@@ -0,0 +1,125 @@
+package plotter.sampling;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+import plotter.expressions.Expression;
+
+/**
+ * Samples expressions on a {@link ForkJoinPool}. The x coordinates are split
+ * into chunks which are evaluated in parallel, each chunk writing into its own
+ * slice of the result buffers, so no synchronization is needed. Building paths
+ * from the samples is left to the caller.
+ */
+public class Sampler {
+
+	/* Number of samples evaluated by one task */
+	public static int CHUNK_SIZE = 2048;
+
+	/* The pool running the tasks */
+	public static ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+	/* Never cancelled */
+	private static final BooleanSupplier NEVER = () -> false;
+
+	/**
+	 * Samples an expression in parallel.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param xs
+	 *            The x coordinates to sample the expression at.
+	 * @return The sampled values.
+	 */
+	public static Samples sample(Expression expression, double[] xs) {
+		return sample(expression, xs, NEVER);
+	}
+
+	/**
+	 * Samples an expression in parallel. Small ranges, or all ranges if the pool
+	 * has only one worker, are sampled on the calling thread. The cancellation
+	 * flag is checked before each chunk.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param xs
+	 *            The x coordinates to sample the expression at.
+	 * @param cancelled
+	 *            Returns <code>true</code>, if the result is not needed anymore.
+	 * @return The sampled values.
+	 * @throws CancellationException
+	 *             If sampling was cancelled.
+	 */
+	public static Samples sample(Expression expression, double[] xs, BooleanSupplier cancelled) {
+		double[] real = new double[xs.length];
+		double[] imaginary = new double[xs.length];
+
+		// Compile once before the tasks share the program
+		expression.getProgram();
+
+		if (xs.length <= CHUNK_SIZE || POOL.getParallelism() <= 1) {
+			for (int from = 0; from < xs.length; from += CHUNK_SIZE) {
+				sample(expression, xs, real, imaginary, from, Math.min(from + CHUNK_SIZE, xs.length), cancelled);
+			}
+		} else {
+			POOL.invoke(new Chunk(expression, xs, real, imaginary, 0, xs.length, cancelled));
+		}
+
+		return new Samples(xs, real, imaginary);
+	}
+
+	/**
+	 * Samples the slice <code>[from, to)</code> of the buffers.
+	 */
+	private static void sample(Expression expression, double[] xs, double[] real, double[] imaginary, int from,
+			int to, BooleanSupplier cancelled) {
+		if (cancelled.getAsBoolean()) {
+			throw new CancellationException();
+		}
+
+		expression.eval(xs, real, imaginary, from, to);
+	}
+
+	/**
+	 * Task sampling the slice <code>[from, to)</code> of the buffers. Slices
+	 * larger than {@link #CHUNK_SIZE} are split in halves.
+	 */
+	private static class Chunk extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Expression expression;
+		private final double[] xs;
+		private final double[] real;
+		private final double[] imaginary;
+		private final int from;
+		private final int to;
+		private final BooleanSupplier cancelled;
+
+		Chunk(Expression expression, double[] xs, double[] real, double[] imaginary, int from, int to,
+				BooleanSupplier cancelled) {
+			this.expression = expression;
+			this.xs = xs;
+			this.real = real;
+			this.imaginary = imaginary;
+			this.from = from;
+			this.to = to;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Chunk(expression, xs, real, imaginary, from, middle, cancelled),
+						new Chunk(expression, xs, real, imaginary, middle, to, cancelled));
+				return;
+			}
+
+			sample(expression, xs, real, imaginary, from, to, cancelled);
+		}
+	}
+
+}
@@ -0,0 +1,218 @@
+package plotter.sampling;
+
+import java.util.Arrays;
+
+import plotter.expressions.Expression;
+
+/**
+ * Buffer of sampled function values. The real and imaginary parts are sampled
+ * in a single pass, so both curves of a function and its tooltip read from the
+ * same buffer.
+ */
+public class Samples {
+
+	/* The sampled coordinates */
+	private final double[] xs;
+	private final double[] real;
+	private final double[] imaginary;
+
+	/* Wether all sampled values are real */
+	private final boolean isReal;
+
+	public Samples(double[] xs, double[] real, double[] imaginary) {
+		this.xs = xs;
+		this.real = real;
+		this.imaginary = imaginary;
+		this.isReal = isReal(imaginary);
+	}
+
+	/**
+	 * Samples an expression.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param xs
+	 *            The x coordinates to sample the expression at.
+	 * @return The sampled values.
+	 */
+	public static Samples sample(Expression expression, double[] xs) {
+		double[] real = new double[xs.length];
+		double[] imaginary = new double[xs.length];
+
+		expression.eval(xs, real, imaginary);
+		return new Samples(xs, real, imaginary);
+	}
+
+	/**
+	 * Creates the x coordinates to sample a function at.
+	 *
+	 * @param lowerBound
+	 *            The first x coordinate.
+	 * @param upperBound
+	 *            The upper bound, which is not included.
+	 * @param step
+	 *            The distance between two x coordinates.
+	 * @return The x coordinates.
+	 */
+	public static double[] range(double lowerBound, double upperBound, double step) {
+		int count = 0;
+		for (double x = lowerBound; x < upperBound; x += step) {
+			count++;
+		}
+
+		double[] xs = new double[count];
+		double x = lowerBound;
+		for (int i = 0; i < count; i++, x += step) {
+			xs[i] = x;
+		}
+
+		return xs;
+	}
+
+	/**
+	 * Creates the x coordinates of a range that are multiples of a step,
+	 * including the closest multiple outside the range on either side, so a
+	 * curve drawn from them reaches the bounds. Ranges that overlap share the x
+	 * coordinates of the overlap, so their samples can be combined.
+	 *
+	 * @param lowerBound
+	 *            The lower bound.
+	 * @param upperBound
+	 *            The upper bound.
+	 * @param step
+	 *            The distance between two x coordinates.
+	 * @return The x coordinates.
+	 */
+	public static double[] lattice(double lowerBound, double upperBound, double step) {
+		long first = (long) Math.floor(lowerBound / step);
+		long last = (long) Math.ceil(upperBound / step);
+		double[] xs = new double[(int) Math.max(0, last - first + 1)];
+
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = (first + i) * step;
+		}
+
+		return xs;
+	}
+
+	/**
+	 * Joins samples of adjacent ranges. Samples that are not right of the
+	 * samples before them, e.g. the shared border of two ranges, are skipped.
+	 *
+	 * @param parts
+	 *            The samples, sorted by x.
+	 * @return The joined samples.
+	 */
+	public static Samples join(Samples... parts) {
+		int size = 0;
+		for (Samples part : parts) {
+			size += part.size();
+		}
+
+		double[] xs = new double[size];
+		double[] real = new double[size];
+		double[] imaginary = new double[size];
+		int k = 0;
+
+		for (Samples part : parts) {
+			for (int i = 0; i < part.size(); i++) {
+				if (k > 0 && part.xs[i] <= xs[k - 1]) {
+					continue;
+				}
+
+				xs[k] = part.xs[i];
+				real[k] = part.real[i];
+				imaginary[k] = part.imaginary[i];
+				k++;
+			}
+		}
+
+		return new Samples(Arrays.copyOf(xs, k), Arrays.copyOf(real, k), Arrays.copyOf(imaginary, k));
+	}
+
+	/**
+	 * Returns the samples needed to draw a range: all samples inside the range
+	 * and the closest sample on either side of it.
+	 *
+	 * @param lowerBound
+	 *            The lower bound of the range.
+	 * @param upperBound
+	 *            The upper bound of the range.
+	 * @return The samples of the range.
+	 */
+	public Samples slice(double lowerBound, double upperBound) {
+		int from = 0;
+		while (from + 1 < xs.length && xs[from + 1] <= lowerBound) {
+			from++;
+		}
+
+		int to = xs.length;
+		while (to - 1 > from && xs[to - 2] >= upperBound) {
+			to--;
+		}
+
+		return new Samples(Arrays.copyOfRange(xs, from, to), Arrays.copyOfRange(real, from, to),
+				Arrays.copyOfRange(imaginary, from, to));
+	}
+
+	private static boolean isReal(double[] imaginary) {
+		for (double d : imaginary) {
+			if (d != 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/* Getters */
+
+	public int size() {
+		return xs.length;
+	}
+
+	public double[] getXs() {
+		return xs;
+	}
+
+	public double[] getReal() {
+		return real;
+	}
+
+	public double[] getImaginary() {
+		return imaginary;
+	}
+
+	public boolean isReal() {
+		return isReal;
+	}
+
+	/**
+	 * Looks up the sample closest to a x coordinate.
+	 *
+	 * @param x
+	 *            The x coordinate.
+	 * @return The index of the closest sample or <code>-1</code>, if the buffer
+	 *         is empty.
+	 */
+	public int indexOf(double x) {
+		if (xs.length == 0) {
+			return -1;
+		}
+
+		int i = Arrays.binarySearch(xs, x);
+		if (i >= 0) {
+			return i;
+		}
+
+		int upper = -i - 1;
+		if (upper == 0) {
+			return 0;
+		} else if (upper == xs.length) {
+			return xs.length - 1;
+		}
+
+		return (x - xs[upper - 1] <= xs[upper] - x) ? upper - 1 : upper;
+	}
+
+}
@@ -1,19 +0,0 @@
-package plotter.scene.axes;
-
-public class AxesUtil {
-
-	// TODO: automatic (responsive) design
-	public static double WINDOW_WIDTH = 1000;
-	public static double WINDOW_HEIGHT = 750;
-
-	public static double AXES_X_MIN = -10;
-	public static double AXES_X_MAX = 10;
-	public static double AXES_X_UNIT = 1;
-
-	public static double AXES_Y_MIN = -10;
-	public static double AXES_Y_MAX = 10;
-	public static double AXES_Y_UNIT = 1;
-
-	public static double AXES_X_STEP = 0.001;
-
-}
@@ -1,15 +1,20 @@
 package plotter.scene.axes;
 
+import java.util.List;
+
 import javafx.beans.binding.Bindings;
 import javafx.geometry.Side;
-import javafx.scene.chart.NumberAxis;
 import javafx.scene.layout.Pane;
 
 public class Axes extends Pane {
 
 	/* Private fields */
-	private NumberAxis xAxis;
-	private NumberAxis yAxis;
+	private UnitAxis xAxis;
+	private UnitAxis yAxis;
+
+	/* Number of ticks of the initial ranges */
+	private double xTicks;
+	private double yTicks;
 
 	public Axes() {
 		setPane();
@@ -32,28 +37,86 @@ public class Axes extends Pane {
 	}
 
 	private void setHorizontalAxis(double from, double to, double unit) {
-		xAxis = new NumberAxis(from, to, unit);
+		xAxis = new UnitAxis(from, to, unit);
+		xTicks = (to - from) / unit;
 		xAxis.setSide(Side.BOTTOM);
 		xAxis.setLabel("x");
 		xAxis.setMinorTickVisible(false);
+		xAxis.setAnimated(false);
 		xAxis.setPrefWidth(AxesUtil.WINDOW_WIDTH);
 		xAxis.setLayoutY(AxesUtil.WINDOW_HEIGHT);
 	}
 
 	private void setVerticalAxis(double from, double to, double unit) {
-		yAxis = new NumberAxis(from, to, unit);
+		yAxis = new UnitAxis(from, to, unit);
+		yTicks = (to - from) / unit;
 		yAxis.setSide(Side.LEFT);
 		yAxis.setLabel("f(x)");
 		yAxis.setMinorTickVisible(false);
+		yAxis.setAnimated(false);
 		yAxis.setPrefHeight(AxesUtil.WINDOW_HEIGHT);
 		yAxis.layoutXProperty().bind(Bindings.subtract(1, yAxis.widthProperty()));
 	}
 
-	public NumberAxis getHorizontalAxis() {
+	/**
+	 * Changes the ranges of both axes. The tick units are scaled along, so the
+	 * number of ticks stays about the same as initially.
+	 *
+	 * @param xFrom
+	 *            The new lower bound of the x axis.
+	 * @param xTo
+	 *            The new upper bound of the x axis.
+	 * @param yFrom
+	 *            The new lower bound of the y axis.
+	 * @param yTo
+	 *            The new upper bound of the y axis.
+	 */
+	public void setBounds(double xFrom, double xTo, double yFrom, double yTo) {
+		setBounds(xAxis, xFrom, xTo, xTicks);
+		setBounds(yAxis, yFrom, yTo, yTicks);
+	}
+
+	private static void setBounds(UnitAxis axis, double from, double to, double ticks) {
+		axis.setLowerBound(from);
+		axis.setUpperBound(to);
+		axis.setTickUnit(AxesUtil.tickUnit(to - from, ticks));
+	}
+
+	/**
+	 * Returns the values of the ticks of the horizontal axis inside its range.
+	 * The ticks are the multiples of the tick unit, like those the axis shows.
+	 *
+	 * @return The tick values, in ascending order.
+	 */
+	public List<Double> getHorizontalTicks() {
+		return getTicks(xAxis);
+	}
+
+	/**
+	 * Returns the values of the ticks of the vertical axis inside its range, see
+	 * {@link #getHorizontalTicks()}.
+	 *
+	 * @return The tick values, in ascending order.
+	 */
+	public List<Double> getVerticalTicks() {
+		return getTicks(yAxis);
+	}
+
+	/**
+	 * Computes the ticks of an axis from its range and tick unit. The ticks at
+	 * the bounds are left out.
+	 */
+	private List<Double> getTicks(UnitAxis axis) {
+		List<Double> ticks = AxesUtil.ticks(axis.getLowerBound(), axis.getUpperBound(), axis.getTickUnit());
+		ticks.removeIf(tick -> tick == axis.getLowerBound() || tick == axis.getUpperBound());
+		return ticks;
+	}
+
+	public UnitAxis getHorizontalAxis() {
 		return xAxis;
 	}
 
-	public NumberAxis getVerticalAxis() {
+	public UnitAxis getVerticalAxis() {
 		return yAxis;
 	}
 	
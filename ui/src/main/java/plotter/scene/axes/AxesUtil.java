@@ -0,0 +1,78 @@
+package plotter.scene.axes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AxesUtil {
+
+	// TODO: automatic (responsive) design
+	public static double WINDOW_WIDTH = 1000;
+	public static double WINDOW_HEIGHT = 750;
+
+	public static double AXES_X_MIN = -10;
+	public static double AXES_X_MAX = 10;
+	public static double AXES_X_UNIT = 1;
+
+	public static double AXES_Y_MIN = -10;
+	public static double AXES_Y_MAX = 10;
+	public static double AXES_Y_UNIT = 1;
+
+	/* Upper bound of the number of ticks of an axis */
+	public static int MAX_TICKS = 2000;
+
+	/**
+	 * Chooses a tick unit of 1, 2 or 5 times a power of ten.
+	 *
+	 * @param range
+	 *            The range of the axis.
+	 * @param ticks
+	 *            The wanted number of ticks.
+	 * @return The tick unit giving about the wanted number of ticks.
+	 */
+	public static double tickUnit(double range, double ticks) {
+		double unit = range / Math.max(1, ticks);
+		double magnitude = Math.pow(10, Math.floor(Math.log10(unit)));
+		double mantissa = unit / magnitude;
+
+		if (mantissa < 1.5) {
+			return magnitude;
+		} else if (mantissa < 3.5) {
+			return 2 * magnitude;
+		} else if (mantissa < 7.5) {
+			return 5 * magnitude;
+		}
+
+		return 10 * magnitude;
+	}
+
+	/**
+	 * Computes the ticks of a range, which are the multiples of the tick unit.
+	 * Each tick is computed as a product instead of a sum of tick units, so the
+	 * ticks do not drift.
+	 *
+	 * @param lowerBound
+	 *            The lower bound of the range.
+	 * @param upperBound
+	 *            The upper bound of the range.
+	 * @param unit
+	 *            The tick unit.
+	 * @return The ticks inside the range, bounds included, in ascending order.
+	 *         Empty if there would be more than {@link #MAX_TICKS} ticks.
+	 */
+	public static List<Double> ticks(double lowerBound, double upperBound, double unit) {
+		List<Double> ticks = new ArrayList<Double>();
+
+		if (!(unit > 0) || !((upperBound - lowerBound) / unit <= MAX_TICKS)) {
+			return ticks;
+		}
+
+		for (long k = (long) Math.ceil(lowerBound / unit); k * unit <= upperBound; k++) {
+			if (k * unit >= lowerBound) {
+				ticks.add(k * unit);
+			}
+		}
+
+		return ticks;
+	}
+
+}
@@ -0,0 +1,94 @@
+package plotter.scene.axes;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.ValueAxis;
+
+/**
+ * An axis with a fixed range whose ticks are the multiples of its tick unit.
+ * The ticks of a {@link NumberAxis} start at its lower bound or the next
+ * integer, so they move along when the range is shifted and do not match the
+ * grid. The ticks of this axis are computed by {@link AxesUtil#ticks}, like the
+ * grid lines, so both stay aligned while the plot is dragged.
+ */
+public class UnitAxis extends ValueAxis<Number> {
+
+	/* Distance between two ticks */
+	private final DoubleProperty tickUnit = new SimpleDoubleProperty(this, "tickUnit", 1) {
+		@Override
+		protected void invalidated() {
+			invalidateRange();
+			requestAxisLayout();
+		}
+	};
+
+	public UnitAxis(double lowerBound, double upperBound, double tickUnit) {
+		super(lowerBound, upperBound);
+		setTickUnit(tickUnit);
+	}
+
+	public final double getTickUnit() {
+		return tickUnit.get();
+	}
+
+	public final void setTickUnit(double value) {
+		tickUnit.set(value);
+	}
+
+	public final DoubleProperty tickUnitProperty() {
+		return tickUnit;
+	}
+
+	/* Range */
+
+	@Override
+	protected Object getRange() {
+		return new double[] { getLowerBound(), getUpperBound(), getTickUnit(), getScale() };
+	}
+
+	@Override
+	protected void setRange(Object range, boolean animate) {
+		double[] bounds = (double[]) range;
+		setLowerBound(bounds[0]);
+		setUpperBound(bounds[1]);
+		setTickUnit(bounds[2]);
+		setScale(bounds[3]);
+		currentLowerBound.set(bounds[0]);
+	}
+
+	/* Ticks */
+
+	@Override
+	protected List<Number> calculateTickValues(double length, Object range) {
+		double[] bounds = (double[]) range;
+		return new ArrayList<Number>(AxesUtil.ticks(bounds[0], bounds[1], bounds[2]));
+	}
+
+	@Override
+	protected List<Number> calculateMinorTickMarks() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Formats a tick with as many decimals as the tick unit has, so rounding
+	 * errors of the multiples do not show up in the labels.
+	 */
+	@Override
+	protected String getTickMarkLabel(Number value) {
+		if (getTickLabelFormatter() != null) {
+			return getTickLabelFormatter().toString(value);
+		}
+
+		int scale = Math.max(0, BigDecimal.valueOf(getTickUnit()).stripTrailingZeros().scale());
+		return BigDecimal.valueOf(value.doubleValue()).setScale(scale, RoundingMode.HALF_UP).stripTrailingZeros()
+				.toPlainString();
+	}
+
+}
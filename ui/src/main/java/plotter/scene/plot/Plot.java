@@ -0,0 +1,430 @@
+package plotter.scene.plot;
+
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.text.Text;
+import javafx.util.Duration;
+import plotter.expressions.Expression;
+import plotter.metrics.Metrics;
+import plotter.sampling.Decimator;
+import plotter.sampling.Samples;
+import plotter.scene.axes.Axes;
+
+public class Plot extends Pane {
+
+	/**
+	 * The ways to draw the grid and the curves of a plot. Paths keep one node per
+	 * sample in the scene graph, canvases are drawn once from the samples.
+	 */
+	public enum Renderer {
+		PATH, CANVAS
+	}
+
+	private Path gridPath;
+	private Path originPath;
+	private Axes axes;
+	private Path realPath;
+	private Path imaginaryPath;
+	private Canvas gridCanvas;
+	private Canvas curveCanvas;
+	private Renderer renderer = PlotUtil.RENDERER;
+	private Expression expression;
+	private Samples samples;
+	private Samples curve;
+	private Tooltip tooltip;
+	private boolean isTooltipActive = false;
+	private Text metrics;
+	private int nodeCount;
+
+	/* Viewport changes */
+	private PlotJob job;
+	private PauseTransition refinement;
+	private double dragX;
+	private double dragY;
+
+	public Plot(Axes axes, Expression expression) {
+		this(axes, expression, null);
+	}
+
+	/**
+	 * Creates a plot from samples computed in advance, see {@link PlotJob}.
+	 *
+	 * @param axes
+	 *            The axes of the plot.
+	 * @param expression
+	 *            The plotted expression.
+	 * @param samples
+	 *            The samples of the expression or <code>null</code>, if the
+	 *            expression should be sampled now.
+	 */
+	public Plot(Axes axes, Expression expression, Samples samples) {
+		this.axes = axes;
+		this.expression = expression;
+		this.samples = samples;
+
+		draw();
+
+		setOnMouseMoved(event -> showCoordinates(event));
+		setOnMouseClicked(event -> toggleCoordinates(event));
+		setOnMousePressed(event -> startDrag(event));
+		setOnMouseDragged(event -> drag(event));
+		setOnMouseReleased(event -> endDrag(event));
+		setOnScroll(event -> zoom(event));
+	}
+
+	public void draw() {
+		if (expression == null) {
+			getChildren().setAll(axes);
+			return;
+		}
+
+		if (tooltip == null) {
+			tooltip = new Tooltip();
+		}
+
+		double xLowerBound = axes.getHorizontalLowerBound();
+		double xUpperBound = axes.getHorizontalUpperBound();
+
+		if (samples == null) {
+			samples = PlotUtil.sample(expression, xLowerBound, xUpperBound, PlotUtil.pixelsPerWidthUnit(axes),
+					PlotUtil.pixelsPerHeightUnit(axes), () -> false);
+		}
+
+		curve = Decimator.decimate(samples, xLowerBound, PlotUtil.pixelsPerWidthUnit(axes),
+				(int) Math.ceil(axes.getPrefWidth()));
+
+		long start = System.nanoTime();
+
+		if (renderer == Renderer.CANVAS) {
+			drawCanvas();
+		} else {
+			drawPaths();
+		}
+
+		Metrics.DRAW_NANOS.record(System.nanoTime() - start);
+
+		setMinSize(Pane.USE_PREF_SIZE, Pane.USE_PREF_SIZE);
+		setPrefSize(axes.getPrefWidth(), axes.getPrefHeight());
+		setMaxSize(Pane.USE_PREF_SIZE, Pane.USE_PREF_SIZE);
+
+		redraw();
+	}
+
+	public void redraw() {
+		if (renderer == Renderer.CANVAS) {
+			getChildren().setAll(gridCanvas, axes, curveCanvas);
+			nodeCount = 3;
+		} else {
+			getChildren().setAll(gridPath, originPath, axes, realPath, imaginaryPath);
+			nodeCount = 5 + gridPath.getElements().size() + originPath.getElements().size()
+					+ realPath.getElements().size() + imaginaryPath.getElements().size();
+		}
+
+		Metrics.PLOT_NODES.record(nodeCount);
+
+		if (PlotUtil.SHOW_METRICS) {
+			drawMetrics();
+		}
+	}
+
+	/* Metrics overlay */
+
+	/**
+	 * Shows the current {@link Metrics} in the upper left corner of the plot.
+	 */
+	private void drawMetrics() {
+		if (metrics == null) {
+			metrics = new Text();
+			metrics.getStyleClass().add("plot-metrics");
+			metrics.setMouseTransparent(true);
+			metrics.setManaged(false);
+		}
+
+		metrics.setText("plot.nodes: " + nodeCount + "\n" + Metrics.format());
+		metrics.relocate(PlotUtil.PADDING_CELL.getLeft(), PlotUtil.PADDING_CELL.getTop());
+		getChildren().add(metrics);
+	}
+
+	/* Path renderer */
+
+	private void drawPaths() {
+		gridPath = new Path();
+		originPath = new Path();
+		realPath = new Path();
+		imaginaryPath = new Path();
+		gridCanvas = null;
+		curveCanvas = null;
+
+		plotGrid(axes);
+		plotLine(realPath, curve.getReal(), true);
+
+		if (!curve.isReal()) {
+			plotLine(imaginaryPath, curve.getImaginary(), false);
+		}
+	}
+	
+	private void plotGrid(Axes axes) {
+		PlotUtil.setStroke(axes, gridPath, Color.LIGHTGRAY, 1);
+		PlotUtil.setStroke(axes, originPath, Color.DARKGRAY, 2);
+		PlotUtil.drawHorizontalLines(gridPath, originPath, axes);
+		PlotUtil.drawVerticalLines(gridPath, originPath, axes);
+	}
+
+	private void plotLine(Path path, double[] ys, boolean isReal) {
+		double[] xs = curve.getXs();
+		PlotUtil.setStroke(axes, path, (isReal ? Color.ORANGE : Color.DEEPSKYBLUE), 1);
+
+		for (int i = 0; i < xs.length; i++) {
+			double x = xs[i];
+			double y = ys[i];
+
+			if (i == 0) {
+				path.getElements().add(new MoveTo(PlotUtil.mapHorizontal(axes, x), PlotUtil.mapVertical(axes, y)));
+			} else {
+				path.getElements().add(new LineTo(PlotUtil.mapHorizontal(axes, x), PlotUtil.mapVertical(axes, y)));
+			}
+		}
+	}
+
+	/* Canvas renderer */
+
+	private void drawCanvas() {
+		gridCanvas = PlotUtil.createCanvas(axes);
+		curveCanvas = PlotUtil.createCanvas(axes);
+		gridPath = null;
+		originPath = null;
+		realPath = null;
+		imaginaryPath = null;
+
+		GraphicsContext grid = gridCanvas.getGraphicsContext2D();
+		plotGrid(grid, false, Color.LIGHTGRAY, 1);
+		plotGrid(grid, true, Color.DARKGRAY, 2);
+
+		GraphicsContext curves = curveCanvas.getGraphicsContext2D();
+		plotLine(curves, curve.getReal(), true);
+
+		if (!curve.isReal()) {
+			plotLine(curves, curve.getImaginary(), false);
+		}
+	}
+
+	private void plotGrid(GraphicsContext gc, boolean isOrigin, Color color, int width) {
+		PlotUtil.setStroke(gc, color, width);
+		gc.beginPath();
+		PlotUtil.drawHorizontalLines(gc, axes, isOrigin);
+		PlotUtil.drawVerticalLines(gc, axes, isOrigin);
+		gc.stroke();
+	}
+
+	private void plotLine(GraphicsContext gc, double[] ys, boolean isReal) {
+		PlotUtil.setStroke(gc, (isReal ? Color.ORANGE : Color.DEEPSKYBLUE), 1);
+		gc.beginPath();
+		PlotUtil.drawCurve(gc, axes, curve.getXs(), ys);
+		gc.stroke();
+	}
+
+	public Renderer getRenderer() {
+		return renderer;
+	}
+
+	/**
+	 * Switches the renderer of this plot and draws it again.
+	 *
+	 * @param renderer
+	 *            The new renderer.
+	 */
+	public void setRenderer(Renderer renderer) {
+		if (this.renderer != renderer) {
+			this.renderer = renderer;
+			draw();
+		}
+	}
+
+	public Expression getExpression() {
+		return expression;
+	}
+
+	public Axes getAxes() {
+		return axes;
+	}
+
+	/**
+	 * Returns the number of scene graph nodes of the grid and the curves as of
+	 * the last draw. Every element of a path counts as a node.
+	 *
+	 * @return The number of nodes.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	@Override
+	public String toString() {
+		return expression.toString();
+	}
+
+	/* Viewport */
+
+	/**
+	 * Changes the viewport of the plot. The plot is drawn again right away from
+	 * the samples it already has. Once the viewport has not changed for
+	 * {@link PlotUtil#REFINE_DELAY_MILLIS} or a drag ends, it is sampled again in
+	 * the background, first coarsely and then at full resolution. So a drag or a
+	 * series of wheel steps samples only its last viewport instead of every
+	 * intermediate one. A new change cancels the sampling of the previous one,
+	 * and the preview samples only the ranges the change exposed.
+	 *
+	 * @param xFrom
+	 *            The new lower bound of the x axis.
+	 * @param xTo
+	 *            The new upper bound of the x axis.
+	 * @param yFrom
+	 *            The new lower bound of the y axis.
+	 * @param yTo
+	 *            The new upper bound of the y axis.
+	 */
+	public void setViewport(double xFrom, double xTo, double yFrom, double yTo) {
+		axes.setBounds(xFrom, xTo, yFrom, yTo);
+		draw();
+
+		if (job != null) {
+			job.cancel();
+			job = null;
+		}
+
+		if (refinement == null) {
+			refinement = new PauseTransition(Duration.millis(PlotUtil.REFINE_DELAY_MILLIS));
+			refinement.setOnFinished(event -> refine());
+		}
+
+		refinement.playFromStart();
+	}
+
+	/**
+	 * Samples the current viewport in the background.
+	 */
+	private void refine() {
+		if (refinement != null) {
+			refinement.stop();
+		}
+
+		if (job != null) {
+			job.cancel();
+		}
+
+		job = PlotJob.refine(axes, expression, samples, refined -> {
+			samples = refined;
+			draw();
+		});
+	}
+
+	/**
+	 * Stops sampling the viewport in the background, e.g. when the plot is not
+	 * shown anymore. The jobs share one thread, so the job of a plot that is not
+	 * shown would delay the jobs of the plot that is.
+	 */
+	public void dispose() {
+		if (refinement != null) {
+			refinement.stop();
+		}
+
+		if (job != null) {
+			job.cancel();
+			job = null;
+		}
+	}
+
+	/* Events */
+
+	private void startDrag(MouseEvent event) {
+		dragX = event.getX();
+		dragY = event.getY();
+	}
+
+	private void drag(MouseEvent event) {
+		if (!event.isPrimaryButtonDown() || expression == null) {
+			return;
+		}
+
+		double dx = (event.getX() - dragX) / PlotUtil.pixelsPerWidthUnit(axes);
+		double dy = (event.getY() - dragY) / PlotUtil.pixelsPerHeightUnit(axes);
+		dragX = event.getX();
+		dragY = event.getY();
+
+		setViewport(axes.getHorizontalLowerBound() - dx, axes.getHorizontalUpperBound() - dx,
+				axes.getVerticalLowerBound() + dy, axes.getVerticalUpperBound() + dy);
+	}
+
+	private void endDrag(MouseEvent event) {
+		if (event.getButton() == MouseButton.PRIMARY && refinement != null
+				&& refinement.getStatus() == Animation.Status.RUNNING) {
+			refine();
+		}
+	}
+
+	private void zoom(ScrollEvent event) {
+		if (event.getDeltaY() == 0 || expression == null) {
+			return;
+		}
+
+		// Keep the point under the cursor in place
+		double factor = event.getDeltaY() > 0 ? 1 / PlotUtil.ZOOM_FACTOR : PlotUtil.ZOOM_FACTOR;
+		double x = PlotUtil.valueHorizontal(axes, event.getX());
+		double y = PlotUtil.valueVertical(axes, event.getY());
+
+		setViewport(x - (x - axes.getHorizontalLowerBound()) * factor,
+				x + (axes.getHorizontalUpperBound() - x) * factor, y - (y - axes.getVerticalLowerBound()) * factor,
+				y + (axes.getVerticalUpperBound() - y) * factor);
+		event.consume();
+	}
+
+	private void toggleCoordinates(MouseEvent event) {
+		if (event.getButton() != MouseButton.PRIMARY || !event.isStillSincePress()) {
+			return;
+		}
+
+		if (isTooltipActive) {
+			isTooltipActive = false;
+			hideCoordinates();
+		} else {
+			isTooltipActive = true;
+			showCoordinates(event);
+		}
+	}
+
+	private void showCoordinates(MouseEvent event) {
+		if (!isTooltipActive) {
+			return;
+		}
+
+		int i = samples.indexOf(axes.getHorizontalAxis().getValueForDisplay(event.getX()).doubleValue());
+		if (i < 0) {
+			return;
+		}
+
+		double x = Math.floor(samples.getXs()[i] * 100) / 100;
+		double y = Math.floor(samples.getReal()[i] * 100) / 100;
+
+		tooltip.setText("x = " + x + ", f(x) = " + y);
+		
+		// TODO: instead of 150px calculate the height difference from window top border to beginning of axes
+		tooltip.show((Node) event.getSource(), event.getSceneX(), PlotUtil.mapVertical(axes, samples.getReal()[i]) + 150);
+	}
+
+	public void hideCoordinates() {
+		tooltip.setText("");
+		tooltip.hide();
+	}
+}
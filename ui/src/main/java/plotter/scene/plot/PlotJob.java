@@ -0,0 +1,187 @@
+package plotter.scene.plot;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import plotter.expressions.Expression;
+import plotter.sampling.Samples;
+import plotter.scene.axes.Axes;
+
+/**
+ * Computes a {@link Plot} in the background. The expression is sampled on the
+ * {@link #EXECUTOR}, only the plot itself is created on the FX application
+ * thread. A cancelled job stops sampling at the next chunk and never publishes
+ * its plot.
+ *
+ * Jobs refining a plot after its viewport changed publish a coarse preview
+ * first and the samples at full resolution afterwards. The preview keeps the
+ * samples the plot already has and samples only the ranges the new viewport
+ * exposes. If these samples cover the viewport densely enough, there is no
+ * preview.
+ */
+public class PlotJob implements Runnable {
+
+	/* Runs the jobs, one at a time */
+	public static ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "plot-job");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/* Private fields */
+	private final Expression expression;
+	private final double xLowerBound;
+	private final double xUpperBound;
+	private final double xScale;
+	private final double yScale;
+	private final boolean isProgressive;
+	private final Samples previous;
+	private final Consumer<Samples> onSamples;
+	private volatile boolean cancelled = false;
+
+	private PlotJob(Axes axes, Expression expression, boolean isProgressive, Samples previous,
+			Consumer<Samples> onSamples) {
+		this.expression = expression;
+		this.xLowerBound = axes.getHorizontalLowerBound();
+		this.xUpperBound = axes.getHorizontalUpperBound();
+		this.xScale = PlotUtil.pixelsPerWidthUnit(axes);
+		this.yScale = PlotUtil.pixelsPerHeightUnit(axes);
+		this.isProgressive = isProgressive;
+		this.previous = previous;
+		this.onSamples = onSamples;
+	}
+
+	/**
+	 * Starts computing a plot. Has to be called on the FX application thread.
+	 *
+	 * @param axes
+	 *            The axes of the plot.
+	 * @param expression
+	 *            The expression to plot.
+	 * @param onDone
+	 *            Receives the plot on the FX application thread, unless the job
+	 *            was cancelled.
+	 * @return The job.
+	 */
+	public static PlotJob submit(Axes axes, Expression expression, Consumer<Plot> onDone) {
+		PlotJob job = new PlotJob(axes, expression, false, null,
+				samples -> onDone.accept(new Plot(axes, expression, samples)));
+		EXECUTOR.execute(job);
+		return job;
+	}
+
+	/**
+	 * Starts sampling an existing plot for the current viewport of its axes. Has
+	 * to be called on the FX application thread.
+	 *
+	 * @param axes
+	 *            The axes of the plot.
+	 * @param expression
+	 *            The expression of the plot.
+	 * @param previous
+	 *            The samples the plot has for its previous viewport or
+	 *            <code>null</code>.
+	 * @param onSamples
+	 *            Receives the preview, if any, and then the full samples on the FX
+	 *            application thread, unless the job was cancelled.
+	 * @return The job.
+	 */
+	public static PlotJob refine(Axes axes, Expression expression, Samples previous,
+			Consumer<Samples> onSamples) {
+		PlotJob job = new PlotJob(axes, expression, true, previous, onSamples);
+		EXECUTOR.execute(job);
+		return job;
+	}
+
+	@Override
+	public void run() {
+		if (cancelled) {
+			return;
+		}
+
+		try {
+			Samples preview = isProgressive ? preview() : null;
+
+			if (preview != null) {
+				publish(preview);
+			}
+
+			publish(PlotUtil.sample(expression, xLowerBound, xUpperBound, xScale, yScale, this::isCancelled));
+		} catch (CancellationException e) {
+			return;
+		} catch (RuntimeException e) {
+			// Report invalid expressions on the FX thread, as before
+			Platform.runLater(() -> {
+				if (!cancelled) {
+					throw e;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Computes the preview of the viewport from the previous samples and coarse
+	 * samples of the exposed ranges.
+	 *
+	 * @return The preview or <code>null</code>, if the previous samples cover
+	 *         the viewport at least as densely as a preview would.
+	 */
+	private Samples preview() {
+		double[] xs = previous == null ? new double[0] : previous.getXs();
+
+		if (xs.length == 0 || xs[xs.length - 1] <= xLowerBound || xs[0] >= xUpperBound) {
+			return samplePreview(xLowerBound, xUpperBound);
+		}
+
+		double first = xs[0];
+		double last = xs[xs.length - 1];
+		Samples kept = previous.slice(xLowerBound, xUpperBound);
+		double pixels = (Math.min(last, xUpperBound) - Math.max(first, xLowerBound)) * xScale;
+
+		if (kept.size() < pixels * PlotUtil.PREVIEW_SAMPLES_PER_PIXEL) {
+			return samplePreview(xLowerBound, xUpperBound);
+		}
+
+		if (first <= xLowerBound && last >= xUpperBound) {
+			return null;
+		}
+
+		if (first > xLowerBound) {
+			kept = Samples.join(samplePreview(xLowerBound, first), kept);
+		}
+
+		if (last < xUpperBound) {
+			kept = Samples.join(kept, samplePreview(last, xUpperBound));
+		}
+
+		return kept;
+	}
+
+	private Samples samplePreview(double lowerBound, double upperBound) {
+		return PlotUtil.samplePreview(expression, lowerBound, upperBound, xScale, this::isCancelled);
+	}
+
+	private void publish(Samples samples) {
+		Platform.runLater(() -> {
+			if (!cancelled) {
+				onSamples.accept(samples);
+			}
+		});
+	}
+
+	/**
+	 * Cancels the job. Has to be called on the FX application thread, so samples
+	 * already waiting there are dropped as well.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
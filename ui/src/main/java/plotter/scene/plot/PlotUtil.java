@@ -0,0 +1,318 @@
+package plotter.scene.plot;
+
+import java.util.function.BooleanSupplier;
+
+import javafx.geometry.Insets;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Rectangle;
+import plotter.expressions.Expression;
+import plotter.sampling.AdaptiveSampler;
+import plotter.sampling.SampleCache;
+import plotter.sampling.Sampler;
+import plotter.sampling.Samples;
+import plotter.scene.axes.Axes;
+
+public class PlotUtil {
+
+	/* Initial settings */
+	public static double X_MIN = -10;
+	public static double X_MAX = 10;
+
+	public static double Y_MIN = -10;
+	public static double Y_MAX = 10;
+
+	public static double X_UNITS = 1;
+	public static double Y_UNITS = 1;
+
+	/* Samples per pixel column of the axes */
+	public static double SAMPLES_PER_PIXEL = 2;
+
+	/* Wether to sample adaptively instead of SAMPLES_PER_PIXEL */
+	public static boolean ADAPTIVE = true;
+
+	/* Samples per pixel column while the viewport changes */
+	public static double PREVIEW_SAMPLES_PER_PIXEL = 0.25;
+
+	/* Change of the range per step of the mouse wheel */
+	public static double ZOOM_FACTOR = 1.25;
+
+	/* Time without viewport changes before a plot is sampled again */
+	public static double REFINE_DELAY_MILLIS = 150;
+
+	/* Renderer of new plots */
+	public static Plot.Renderer RENDERER = Plot.Renderer.PATH;
+
+	/* Wether plots show the metrics of plotter.metrics.Metrics */
+	public static boolean SHOW_METRICS = false;
+
+	/* UI */
+	public static Insets PADDING_CELL = new Insets(5);
+
+	private PlotUtil() {
+		// No instantiation
+	}
+	
+	public static void drawHorizontalLines(Path gridPath, Path originPath, Axes axes) {
+		double xLowerBound = axes.getHorizontalLowerBound();
+		double xUpperBound = axes.getHorizontalUpperBound();
+		double yLowerBound = axes.getVerticalLowerBound();
+		double yUpperBound = axes.getVerticalUpperBound();
+		
+		for(double y : axes.getVerticalTicks()) {
+			if(y != 0) {
+				addLine(gridPath, axes, xLowerBound, y, xUpperBound, y);
+			}
+		}
+		
+		if(yLowerBound < 0 && yUpperBound >= 0) {
+			addLine(originPath, axes, xLowerBound, 0, xUpperBound, 0);
+		}
+	}
+	
+	public static void drawVerticalLines(Path gridPath, Path originPath, Axes axes) {
+		double xLowerBound = axes.getHorizontalLowerBound();
+		double xUpperBound = axes.getHorizontalUpperBound();
+		double yLowerBound = axes.getVerticalLowerBound();
+		double yUpperBound = axes.getVerticalUpperBound();
+		
+		for(double x : axes.getHorizontalTicks()) {
+			if(x != 0) {
+				addLine(gridPath, axes, x, yLowerBound, x, yUpperBound);
+			}
+		}
+		
+		if(xLowerBound < 0 && xUpperBound >= 0) {
+			addLine(originPath, axes, 0, yLowerBound, 0, yUpperBound);
+		}
+	}
+	
+	private static void addLine(Path path, Axes axes, double xFrom, double yFrom, double xTo, double yTo) {
+		path.getElements().add(new MoveTo(mapHorizontal(axes, xFrom), mapVertical(axes, yFrom)));
+		path.getElements().add(new LineTo(mapHorizontal(axes, xTo), mapVertical(axes, yTo)));
+	}
+	
+	/* Sampling */
+
+	/**
+	 * Samples an expression for a plot. The number of samples depends on the
+	 * width of the axes in pixels, not on the range of the x axis. Sampled
+	 * curves are kept in the {@link SampleCache}, which also reuses them when
+	 * the x range is shifted. Does not access the scene graph, so it can be
+	 * called from any thread.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param xLowerBound
+	 *            The lower bound of the x axis.
+	 * @param xUpperBound
+	 *            The upper bound of the x axis.
+	 * @param xScale
+	 *            The number of pixels per unit on the x axis.
+	 * @param yScale
+	 *            The number of pixels per unit on the y axis.
+	 * @param cancelled
+	 *            Returns <code>true</code>, if the result is not needed anymore.
+	 * @return The sampled values.
+	 */
+	public static Samples sample(Expression expression, double xLowerBound, double xUpperBound, double xScale,
+			double yScale, BooleanSupplier cancelled) {
+		if (ADAPTIVE) {
+			String resolution = "adaptive " + xScale + " " + yScale + " " + AdaptiveSampler.TOLERANCE;
+			return SampleCache.get(expression, xLowerBound, xUpperBound, resolution,
+					(lowerBound, upperBound) -> AdaptiveSampler.sample(expression, lowerBound, upperBound, xScale,
+							yScale, cancelled));
+		}
+
+		return sampleUniform(expression, xLowerBound, xUpperBound, xScale * SAMPLES_PER_PIXEL, cancelled);
+	}
+
+	/**
+	 * Samples an expression coarsely, to preview a plot while its viewport
+	 * changes. Can be called from any thread.
+	 *
+	 * @param expression
+	 *            The expression to sample.
+	 * @param xLowerBound
+	 *            The lower bound of the x axis.
+	 * @param xUpperBound
+	 *            The upper bound of the x axis.
+	 * @param xScale
+	 *            The number of pixels per unit on the x axis.
+	 * @param cancelled
+	 *            Returns <code>true</code>, if the result is not needed anymore.
+	 * @return The sampled values.
+	 */
+	public static Samples samplePreview(Expression expression, double xLowerBound, double xUpperBound,
+			double xScale, BooleanSupplier cancelled) {
+		return sampleUniform(expression, xLowerBound, xUpperBound, xScale * PREVIEW_SAMPLES_PER_PIXEL, cancelled);
+	}
+
+	private static Samples sampleUniform(Expression expression, double xLowerBound, double xUpperBound,
+			double samplesPerUnit, BooleanSupplier cancelled) {
+		double step = 1 / samplesPerUnit;
+		return SampleCache.get(expression, xLowerBound, xUpperBound, "uniform " + step,
+				(lowerBound, upperBound) -> Sampler.sample(expression, Samples.lattice(lowerBound, upperBound, step),
+						cancelled));
+	}
+
+	/* Canvas renderer */
+
+	/**
+	 * Adds the horizontal grid lines to the current path of a canvas.
+	 *
+	 * @param gc
+	 *            The graphics context of the canvas.
+	 * @param axes
+	 *            The axes of the grid.
+	 * @param isOrigin
+	 *            Wether to add the line through the origin or all other lines.
+	 */
+	public static void drawHorizontalLines(GraphicsContext gc, Axes axes, boolean isOrigin) {
+		double xLowerBound = axes.getHorizontalLowerBound();
+		double xUpperBound = axes.getHorizontalUpperBound();
+		double yLowerBound = axes.getVerticalLowerBound();
+		double yUpperBound = axes.getVerticalUpperBound();
+
+		if (isOrigin) {
+			if (yLowerBound < 0 && yUpperBound >= 0) {
+				addLine(gc, axes, xLowerBound, 0, xUpperBound, 0);
+			}
+			return;
+		}
+
+		for (double y : axes.getVerticalTicks()) {
+			if (y != 0) {
+				addLine(gc, axes, xLowerBound, y, xUpperBound, y);
+			}
+		}
+	}
+
+	/**
+	 * Adds the vertical grid lines to the current path of a canvas.
+	 *
+	 * @param gc
+	 *            The graphics context of the canvas.
+	 * @param axes
+	 *            The axes of the grid.
+	 * @param isOrigin
+	 *            Wether to add the line through the origin or all other lines.
+	 */
+	public static void drawVerticalLines(GraphicsContext gc, Axes axes, boolean isOrigin) {
+		double xLowerBound = axes.getHorizontalLowerBound();
+		double xUpperBound = axes.getHorizontalUpperBound();
+		double yLowerBound = axes.getVerticalLowerBound();
+		double yUpperBound = axes.getVerticalUpperBound();
+
+		if (isOrigin) {
+			if (xLowerBound < 0 && xUpperBound >= 0) {
+				addLine(gc, axes, 0, yLowerBound, 0, yUpperBound);
+			}
+			return;
+		}
+
+		for (double x : axes.getHorizontalTicks()) {
+			if (x != 0) {
+				addLine(gc, axes, x, yLowerBound, x, yUpperBound);
+			}
+		}
+	}
+
+	private static void addLine(GraphicsContext gc, Axes axes, double xFrom, double yFrom, double xTo, double yTo) {
+		gc.moveTo(mapHorizontal(axes, xFrom), mapVertical(axes, yFrom));
+		gc.lineTo(mapHorizontal(axes, xTo), mapVertical(axes, yTo));
+	}
+
+	/**
+	 * Adds a sampled curve to the current path of a canvas. The curve is
+	 * interrupted at samples which are not finite, since a canvas path cannot
+	 * pass through them.
+	 *
+	 * @param gc
+	 *            The graphics context of the canvas.
+	 * @param axes
+	 *            The axes of the curve.
+	 * @param xs
+	 *            The x coordinates of the samples.
+	 * @param ys
+	 *            The y coordinates of the samples.
+	 */
+	public static void drawCurve(GraphicsContext gc, Axes axes, double[] xs, double[] ys) {
+		boolean isConnected = false;
+
+		for (int i = 0; i < xs.length; i++) {
+			double x = mapHorizontal(axes, xs[i]);
+			double y = mapVertical(axes, ys[i]);
+
+			if (!Double.isFinite(x) || !Double.isFinite(y)) {
+				isConnected = false;
+			} else if (isConnected) {
+				gc.lineTo(x, y);
+			} else {
+				gc.moveTo(x, y);
+				isConnected = true;
+			}
+		}
+	}
+
+	/**
+	 * Creates a canvas covering the axes. Drawing is clipped to the canvas, just
+	 * like paths are clipped by {@link #setStroke(Axes, Path, Color, int)}.
+	 *
+	 * @param axes
+	 *            The axes to cover.
+	 * @return The canvas.
+	 */
+	public static Canvas createCanvas(Axes axes) {
+		return new Canvas(axes.getPrefWidth(), axes.getPrefHeight());
+	}
+
+	public static void setStroke(GraphicsContext gc, Color color, int width) {
+		gc.setStroke(color.deriveColor(0, 1, 1, 1));
+		gc.setLineWidth(width);
+	}
+
+	/* Mapping */
+
+	public static double pixelsPerWidthUnit(Axes axes) {
+		return axes.getPrefWidth() / axes.getHorizontalBound();
+	}
+	
+	public static double pixelsPerHeightUnit(Axes axes) {
+		return axes.getPrefHeight() / axes.getVerticalBound();
+	}
+
+	public static void setStroke(Axes axes, Path path, Color color, int width) {
+		Rectangle rectangle = new Rectangle(0, 0, axes.getPrefWidth(), axes.getPrefHeight());
+		path.setStroke(color.deriveColor(0, 1, 1, 1));
+		path.setStrokeWidth(width);
+		path.setClip(rectangle);
+	}
+	
+	public static double valueHorizontal(Axes axes, double pixel) {
+		return axes.getHorizontalLowerBound() + pixel / pixelsPerWidthUnit(axes);
+	}
+
+	public static double valueVertical(Axes axes, double pixel) {
+		return axes.getVerticalUpperBound() - pixel / pixelsPerHeightUnit(axes);
+	}
+
+	public static double mapHorizontal(Axes axes, double x) {
+		double ppwu = pixelsPerWidthUnit(axes);
+		double origin = -axes.getHorizontalLowerBound() * ppwu;
+		
+		return x * ppwu + origin;
+	}
+	
+	public static double mapVertical(Axes axes, double y) {
+		double pphu = pixelsPerHeightUnit(axes);
+		double origin = axes.getVerticalUpperBound() * pphu;
+		
+		return -y * pphu + origin;
+	}
+
+}
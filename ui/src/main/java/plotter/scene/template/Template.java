@@ -18,6 +18,7 @@ import plotter.expressions.Expression;
 import plotter.scene.axes.Axes;
 import plotter.scene.plot.Plot;
 import plotter.scene.plot.PlotCell;
+import plotter.scene.plot.PlotJob;
 import plotter.scene.plot.PlotUtil;
 
 public class Template extends Pane {
@@ -41,8 +42,12 @@ public class Template extends Pane {
 	/* Sections */
 	private HBox input;
 	private StackPane graph;
+	private Plot plot;
 	private ListView<Plot> graphList;
 
+	/* The plot being computed in the background */
+	private PlotJob job;
+
 	/* Tooltip */
 
 	public static Template getInstance(Stage stage) {
@@ -125,9 +130,12 @@ public class Template extends Pane {
 		if (expression == null) {
 			createGraphPane(axes);
 		} else {
-			Plot plot = new Plot(axes, expression);
-			createGraphPane(plot);
-			graphList.getItems().add(0, plot);
+			cancelJob();
+			job = PlotJob.submit(axes, expression, plot -> {
+				job = null;
+				createGraphPane(plot);
+				graphList.getItems().add(0, plot);
+			});
 		}
 	}
 
@@ -139,6 +147,11 @@ public class Template extends Pane {
 	}
 
 	private void createGraphPane(Pane pane) {
+		if (plot != null && plot != pane) {
+			plot.dispose();
+		}
+
+		plot = pane instanceof Plot ? (Plot) pane : null;
 		graph = new StackPane(pane);
 		graph.setPadding(TemplateUtil.PADDING_GRAPH);
 		borderPane.setCenter(graph);
@@ -176,9 +189,17 @@ public class Template extends Pane {
 
 	private void redraw(Plot plot) {
 		if (plot != null) {
+			cancelJob();
 			functionField.setText(plot.getExpression().toString());
 			createGraphPane(plot);
 		}
 	}
 
+	private void cancelJob() {
+		if (job != null) {
+			job.cancel();
+			job = null;
+		}
+	}
+
 }